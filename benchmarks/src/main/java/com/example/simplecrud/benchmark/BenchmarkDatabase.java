@@ -0,0 +1,80 @@
+package com.example.simplecrud.benchmark;
+
+import com.example.simplecrud.SimplecrudApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ベンチマーク用の組み込みPostgreSQLとアプリケーションコンテキスト
+ * テーブルはdb/schema.sqlで作成する。
+ */
+class BenchmarkDatabase implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+
+    private BenchmarkDatabase(EmbeddedPostgres postgres) {
+        this.postgres = postgres;
+    }
+
+    static BenchmarkDatabase start() throws IOException, SQLException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/schema.sql"));
+        }
+        return new BenchmarkDatabase(postgres);
+    }
+
+    /**
+     * 組み込みDBに接続したアプリケーションコンテキストを起動する。(Webサーバは起動しない)
+     * application.propertiesより優先させるため、プロパティはコマンドライン引数として渡す。
+     *
+     * @param properties 追加のプロパティ(key=value形式)
+     */
+    ConfigurableApplicationContext startApplication(String... properties) {
+        return new SpringApplicationBuilder(SimplecrudApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(toArgs(properties));
+    }
+
+    /**
+     * 組み込みDBに接続したアプリケーションを、Webサーバ(ランダムなポート)も含めて起動する。
+     * ポートはlocal.server.portプロパティで取得できる。
+     *
+     * @param properties 追加のプロパティ(key=value形式)
+     */
+    ConfigurableApplicationContext startWebApplication(String... properties) {
+        List<String> args = new ArrayList<>(List.of(toArgs(properties)));
+        args.add("--server.port=0");
+        return new SpringApplicationBuilder(SimplecrudApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run(args.toArray(new String[0]));
+    }
+
+    private String[] toArgs(String... properties) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"));
+        args.add("--spring.datasource.username=postgres");
+        args.add("--spring.datasource.password=postgres");
+        // SQLのDEBUGログは計測を歪めるため出力しない
+        args.add("--logging.level.com.example.simplecrud.domain.repository=WARN");
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return args.toArray(new String[0]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        postgres.close();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.simplecrud.benchmark;
+
+import com.example.simplecrud.domain.model.User;
+import com.example.simplecrud.domain.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 詳細画面の参照(selectByPrimaryKey 1回)にかかる、トランザクションの種類ごとの処理時間
+ * <ul>
+ * <li>readWrite: 読み書き可能なトランザクション(変更前のUserServiceImpl.findOneByPrimaryKey)</li>
+ * <li>readOnly: 読み取り専用のトランザクション</li>
+ * <li>supportsReadOnly: トランザクションを開始しない読み取り専用(変更後)</li>
+ * </ul>
+ * 差がリクエストごとに短縮される時間となる。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadTransactionBenchmark {
+
+    private static final int INITIAL_ROWS = 1_000;
+
+    private static final String EXISTING_UID = uid(INITIAL_ROWS / 2);
+
+    private BenchmarkDatabase database;
+
+    private ConfigurableApplicationContext context;
+
+    private UserRepository userRepository;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    private TransactionTemplate supportsReadOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.start();
+        context = database.startApplication();
+        userRepository = context.getBean(UserRepository.class);
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        supportsReadOnly = new TransactionTemplate(transactionManager);
+        supportsReadOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
+        supportsReadOnly.setReadOnly(true);
+
+        for (int i = 0; i < INITIAL_ROWS; i++) {
+            userRepository.insert(newUser(uid(i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        context.close();
+        database.close();
+    }
+
+    @Benchmark
+    public User readWrite() {
+        return readWrite.execute(status -> userRepository.selectByPrimaryKey(EXISTING_UID));
+    }
+
+    @Benchmark
+    public User readOnly() {
+        return readOnly.execute(status -> userRepository.selectByPrimaryKey(EXISTING_UID));
+    }
+
+    @Benchmark
+    public User supportsReadOnly() {
+        return supportsReadOnly.execute(status -> userRepository.selectByPrimaryKey(EXISTING_UID));
+    }
+
+    private static String uid(int i) {
+        return String.format("uid%08d", i);
+    }
+
+    private static User newUser(String uid) {
+        User user = new User();
+        user.setUid(uid);
+        user.setName("name " + uid);
+        user.setPass("pass " + uid);
+        user.setMail(uid + "@example.com");
+        user.setStatus(true);
+        user.setCreatedAt(LocalDateTime.now());
+        user.setChangedAt(LocalDateTime.now());
+        user.setComment("comment " + uid);
+        return user;
+    }
+}
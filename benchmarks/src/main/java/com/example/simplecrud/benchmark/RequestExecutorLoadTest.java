@@ -0,0 +1,188 @@
+package com.example.simplecrud.benchmark;
+
+import com.example.simplecrud.domain.model.User;
+import com.example.simplecrud.domain.repository.UserRepository;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * リクエストを処理するスレッドの種類ごとの、高い同時接続数でのスループットと応答時間
+ * <ul>
+ * <li>platform: Tomcatのスレッドプール(server.tomcat.threads.max)で処理する(従来)</li>
+ * <li>requestExecutor: app.request-executor.enabled=true(Java 21以降は仮想スレッド)で処理する</li>
+ * </ul>
+ * どちらもコネクションプールのサイズは同じとし、検索条件付きの一覧画面(件数と1ページ分の取得)に同時にアクセスする。
+ * JMHは1プロセス内の処理時間の計測のため使わず、HTTPで外から負荷をかける。
+ * <pre>
+ * 実行方法:
+ *   java -cp target/benchmarks.jar com.example.simplecrud.benchmark.RequestExecutorLoadTest [同時接続数] [秒数]
+ * </pre>
+ */
+public class RequestExecutorLoadTest {
+
+    private static final int INITIAL_ROWS = 10_000;
+
+    // 従来の方式のTomcatのスレッド数(同時接続数より少なくし、スレッド数で頭打ちになる状態を再現する)
+    private static final int TOMCAT_THREADS = 20;
+
+    private static final int POOL_SIZE = 10;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        try (BenchmarkDatabase database = BenchmarkDatabase.start()) {
+            List<String> results = new ArrayList<>();
+            results.add(run(database, "platform", concurrency, seconds,
+                    "server.tomcat.threads.max=" + TOMCAT_THREADS));
+            results.add(run(database, "requestExecutor", concurrency, seconds,
+                    "app.request-executor.enabled=true",
+                    "app.request-executor.max-threads=" + concurrency));
+
+            System.out.printf("%n%-16s %10s %10s %10s %10s %8s%n", "mode", "req/s", "p50(ms)", "p99(ms)", "max(ms)", "errors");
+            results.forEach(System.out::println);
+        }
+    }
+
+    private static String run(BenchmarkDatabase database, String mode, int concurrency, int seconds,
+                              String... properties) throws Exception {
+        List<String> args = new ArrayList<>(Arrays.asList(properties));
+        args.add("spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE);
+        try (ConfigurableApplicationContext context = database.startWebApplication(args.toArray(new String[0]))) {
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            if (userRepository.countByExample(null) == 0) {
+                for (int i = 0; i < INITIAL_ROWS; i++) {
+                    userRepository.insert(newUser(uid(i)));
+                }
+            }
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+            ExecutorService clientExecutor = Executors.newFixedThreadPool(concurrency);
+            try {
+                HttpClient client = HttpClient.newBuilder()
+                        .executor(clientExecutor)
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .build();
+                // ウォームアップ(JITとコネクションプール)
+                load(client, baseUrl, concurrency, Math.max(1, seconds / 4));
+                LoadResult result = load(client, baseUrl, concurrency, seconds);
+                return result.format(mode, seconds);
+            } finally {
+                clientExecutor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 同時接続数分のクライアントから、指定した時間リクエストを送り続ける。
+     */
+    private static LoadResult load(HttpClient client, String baseUrl, int concurrency, int seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<LoadResult>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(workers.submit(() -> {
+                    LoadResult result = new LoadResult();
+                    while (System.nanoTime() < deadline) {
+                        // 毎回異なる条件とし、一覧画面のキャッシュや条件付きGETで応答しないようにする。
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl
+                                        + "/user/list?uid=uid0000" + ThreadLocalRandom.current().nextInt(1000)))
+                                .timeout(Duration.ofSeconds(30))
+                                .build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            result.record(System.nanoTime() - start, response.statusCode() == 200);
+                        } catch (Exception e) {
+                            result.record(System.nanoTime() - start, false);
+                        }
+                    }
+                    return result;
+                }));
+            }
+            LoadResult total = new LoadResult();
+            for (Future<LoadResult> future : futures) {
+                total.merge(future.get());
+            }
+            return total;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static String uid(int i) {
+        return String.format("uid%08d", i);
+    }
+
+    private static User newUser(String uid) {
+        User user = new User();
+        user.setUid(uid);
+        user.setName("name " + uid);
+        user.setPass("pass " + uid);
+        user.setMail(uid + "@example.com");
+        user.setStatus(true);
+        user.setCreatedAt(LocalDateTime.now());
+        user.setChangedAt(LocalDateTime.now());
+        user.setComment("comment " + uid);
+        return user;
+    }
+
+    /**
+     * 応答時間(ナノ秒)とエラー件数の集計
+     */
+    private static class LoadResult {
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private int errors;
+
+        void record(long latency, boolean success) {
+            if (!success) {
+                errors++;
+                return;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+
+        void merge(LoadResult other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i], true);
+            }
+            errors += other.errors;
+        }
+
+        String format(String mode, int seconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return String.format("%-16s %10.1f %10.1f %10.1f %10.1f %8d", mode, (double) count / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    count == 0 ? 0.0 : sorted[count - 1] / 1_000_000.0, errors);
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.simplecrud.benchmark;
+
+import com.example.simplecrud.domain.model.User;
+import com.example.simplecrud.domain.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MyBatisのExecutorType(SIMPLE/REUSE)とpgjdbcのprepareThresholdによる、selectByPrimaryKeyの比較
+ * <ul>
+ * <li>prepareThreshold=0: 毎回SQLを解析する(サーバサイドのプリペアドステートメントを使わない)</li>
+ * <li>prepareThreshold=1: 1回目からサーバサイドのプリペアドステートメントを使い、コネクションごとにキャッシュする</li>
+ * <li>REUSE: 同じトランザクション内でJDBCのステートメントを再利用する</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementReuseBenchmark {
+
+    private static final int INITIAL_ROWS = 1_000;
+
+    // 1トランザクションで参照する件数
+    private static final int LOOKUPS_PER_TRANSACTION = 10;
+
+    @Param({"simple", "reuse"})
+    public String executorType;
+
+    @Param({"0", "1"})
+    public String prepareThreshold;
+
+    private BenchmarkDatabase database;
+
+    private ConfigurableApplicationContext context;
+
+    private UserRepository userRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.start();
+        context = database.startApplication(
+                "mybatis.executor-type=" + executorType,
+                "spring.datasource.hikari.data-source-properties.prepareThreshold=" + prepareThreshold);
+        userRepository = context.getBean(UserRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+
+        for (int i = 0; i < INITIAL_ROWS; i++) {
+            userRepository.insert(newUser(uid(i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        context.close();
+        database.close();
+    }
+
+    /**
+     * 1回の参照(トランザクションなし)
+     */
+    @Benchmark
+    public User selectByPrimaryKey() {
+        return userRepository.selectByPrimaryKey(uid(INITIAL_ROWS / 2));
+    }
+
+    /**
+     * 1トランザクションで複数回の参照(REUSEの効果を見る)
+     */
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS_PER_TRANSACTION)
+    public int selectByPrimaryKeyInTransaction() {
+        return transactionTemplate.execute(status -> {
+            int found = 0;
+            for (int i = 0; i < LOOKUPS_PER_TRANSACTION; i++) {
+                if (userRepository.selectByPrimaryKey(uid(i)) != null) {
+                    found++;
+                }
+            }
+            return found;
+        });
+    }
+
+    private static String uid(int i) {
+        return String.format("uid%08d", i);
+    }
+
+    private static User newUser(String uid) {
+        User user = new User();
+        user.setUid(uid);
+        user.setName("name " + uid);
+        user.setPass("pass " + uid);
+        user.setMail(uid + "@example.com");
+        user.setStatus(true);
+        user.setCreatedAt(LocalDateTime.now());
+        user.setChangedAt(LocalDateTime.now());
+        user.setComment("comment " + uid);
+        return user;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.simplecrud.benchmark;
+
+import com.example.simplecrud.domain.model.UserExample;
+import com.example.simplecrud.domain.model.UserSort;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserExampleの条件組み立てと、MyBatisによる動的SQLの生成
+ * DBには接続しない。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserExampleBenchmark {
+
+    private static final String MAPPER_RESOURCE = "com/example/simplecrud/domain/repository/UserRepository.xml";
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2021, 4, 1, 0, 0);
+
+    private static final LocalDateTime TO = LocalDateTime.of(2021, 5, 1, 0, 0);
+
+    private MappedStatement selectByExample;
+
+    private UserExample example;
+
+    @Setup
+    public void setUp() throws IOException {
+        Configuration configuration = new Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        try (InputStream inputStream = Resources.getResourceAsStream(MAPPER_RESOURCE)) {
+            new XMLMapperBuilder(inputStream, configuration, MAPPER_RESOURCE, configuration.getSqlFragments()).parse();
+        }
+        selectByExample = configuration.getMappedStatement(
+                "com.example.simplecrud.domain.repository.UserRepository.selectByExample");
+        example = buildExample();
+    }
+
+    @Benchmark
+    public UserExample buildCriteria() {
+        return buildExample();
+    }
+
+    @Benchmark
+    public BoundSql generateSql() {
+        return selectByExample.getBoundSql(example);
+    }
+
+    private static UserExample buildExample() {
+        UserExample example = new UserExample();
+        example.createCriteria()
+                .andNameLike("%name%")
+                .andMailLike("%@example.com%")
+                .andStatusEqualTo(true)
+                .andCreatedAtBetween(FROM, TO);
+        example.or().andUidEqualTo("uid0001");
+        example.setSort(UserSort.UID_ASC);
+        return example;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.simplecrud.benchmark;
+
+import com.example.simplecrud.app.user.UserForm;
+import com.example.simplecrud.app.user.UserFormMapper;
+import com.example.simplecrud.app.user.UserFormMapperImpl;
+import com.example.simplecrud.domain.model.User;
+import com.github.dozermapper.core.DozerBeanMapperBuilder;
+import com.github.dozermapper.core.Mapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserForm - User間の変換(Dozer / MapStruct)の比較
+ * 割り当て量は「-prof gc」で計測する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserFormMappingBenchmark {
+
+    private Mapper dozerMapper;
+
+    private UserFormMapper userFormMapper;
+
+    private UserForm form;
+
+    private User user;
+
+    @Setup
+    public void setUp() {
+        // 削除前のDozerConfigと同じマッピング定義を読み込む
+        dozerMapper = DozerBeanMapperBuilder.create()
+                .withMappingFiles("META-INF/dozer/dozer-configration-mapping.xml")
+                .build();
+        userFormMapper = new UserFormMapperImpl();
+
+        form = new UserForm("uid0001", "name0001", "pass0001", "uid0001@example.com", "comment0001",
+                LocalDateTime.of(2021, 4, 1, 12, 34, 56));
+
+        user = new User();
+        user.setUid("uid0001");
+        user.setName("name0001");
+        user.setPass("pass0001");
+        user.setMail("uid0001@example.com");
+        user.setStatus(true);
+        user.setCreatedAt(LocalDateTime.of(2021, 4, 1, 12, 34, 56));
+        user.setChangedAt(LocalDateTime.of(2021, 4, 1, 12, 34, 56));
+        user.setComment("comment0001");
+    }
+
+    @Benchmark
+    public User dozerFormToUser() {
+        return dozerMapper.map(form, User.class);
+    }
+
+    @Benchmark
+    public User mapstructFormToUser() {
+        return userFormMapper.map(form);
+    }
+
+    @Benchmark
+    public UserForm dozerUserToForm() {
+        UserForm target = new UserForm();
+        dozerMapper.map(user, target);
+        return target;
+    }
+
+    @Benchmark
+    public UserForm mapstructUserToForm() {
+        UserForm target = new UserForm();
+        userFormMapper.map(user, target);
+        return target;
+    }
+}
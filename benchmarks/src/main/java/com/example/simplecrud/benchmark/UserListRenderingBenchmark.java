@@ -0,0 +1,111 @@
+package com.example.simplecrud.benchmark;
+
+import com.example.simplecrud.domain.model.User;
+import com.example.simplecrud.domain.service.UserPage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.extras.java8time.dialect.Java8TimeDialect;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * user/list.htmlの描画(行数ごと)
+ * 描画結果は破棄し、文字数のみ数える。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserListRenderingBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int rows;
+
+    private SpringTemplateEngine templateEngine;
+
+    private WebContext context;
+
+    @Setup
+    public void setUp() {
+        // Spring Bootの設定(spring.thymeleaf.*)と同じ解決方法・キャッシュ有効
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding("UTF-8");
+        templateResolver.setCacheable(true);
+
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.addDialect(new Java8TimeDialect());
+
+        List<User> users = new ArrayList<>(rows);
+        LocalDateTime now = LocalDateTime.of(2021, 4, 1, 12, 34, 56);
+        for (int i = 0; i < rows; i++) {
+            User user = new User();
+            user.setUid(String.format("uid%08d", i));
+            user.setName("name" + i);
+            user.setMail("uid" + i + "@example.com");
+            user.setStatus(true);
+            user.setCreatedAt(now);
+            user.setChangedAt(now);
+            users.add(user);
+        }
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("page", new UserPage(users, users.get(0).getUid(), users.get(rows - 1).getUid()));
+        variables.put("userList", users);
+
+        MockServletContext servletContext = new MockServletContext();
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", "/user/list");
+        context = new WebContext(request, new MockHttpServletResponse(), servletContext, Locale.JAPANESE, variables);
+    }
+
+    @Benchmark
+    public long render() {
+        CountingWriter writer = new CountingWriter();
+        templateEngine.process("user/list", context, writer);
+        return writer.count;
+    }
+
+    /**
+     * 出力を破棄して文字数のみ数えるWriter
+     */
+    private static class CountingWriter extends Writer {
+
+        private long count;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.simplecrud.benchmark;
+
+import com.example.simplecrud.domain.model.User;
+import com.example.simplecrud.domain.repository.UserRepository;
+import com.example.simplecrud.domain.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UserServiceImplの登録・更新・参照(組み込みPostgreSQLを使用)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final int INITIAL_ROWS = 10_000;
+
+    private static final String EXISTING_UID = uid(INITIAL_ROWS / 2);
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private BenchmarkDatabase database;
+
+    private ConfigurableApplicationContext context;
+
+    private UserService userService;
+
+    private UserRepository userRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.start();
+        context = database.startApplication();
+        userService = context.getBean(UserService.class);
+        userRepository = context.getBean(UserRepository.class);
+
+        for (int i = 0; i < INITIAL_ROWS; i++) {
+            userRepository.insert(newUser(uid(i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        context.close();
+        database.close();
+    }
+
+    /**
+     * キャッシュを経由した参照
+     */
+    @Benchmark
+    public User findOneByPrimaryKey() {
+        return userService.findOneByPrimaryKey(EXISTING_UID);
+    }
+
+    /**
+     * キャッシュを経由しない参照(比較用)
+     */
+    @Benchmark
+    public User selectByPrimaryKey() {
+        return userRepository.selectByPrimaryKey(EXISTING_UID);
+    }
+
+    @Benchmark
+    public User create() {
+        return userService.create(newUser("bench" + sequence.incrementAndGet()));
+    }
+
+    @Benchmark
+    public User update() {
+        User user = newUser(EXISTING_UID);
+        user.setName("name" + sequence.incrementAndGet());
+        return userService.update(user);
+    }
+
+    private static String uid(int i) {
+        return String.format("uid%08d", i);
+    }
+
+    private static User newUser(String uid) {
+        User user = new User();
+        user.setUid(uid);
+        user.setName("name " + uid);
+        user.setPass("pass " + uid);
+        user.setMail(uid + "@example.com");
+        user.setStatus(true);
+        user.setCreatedAt(LocalDateTime.now());
+        user.setChangedAt(LocalDateTime.now());
+        user.setComment("comment " + uid);
+        return user;
+    }
+}
@@ -2,12 +2,34 @@ package com.example.simplecrud;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.core.env.Profiles;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
 
 @SpringBootApplication
 public class SimplecrudApplication {
 
+	// 起動処理のステップを記録する件数(StartupTimingReporter, /actuator/startupで参照する)
+	private static final int STARTUP_STEP_CAPACITY = 4096;
+
 	public static void main(String[] args) {
-		SpringApplication.run(SimplecrudApplication.class, args);
+		SpringApplication application = new SpringApplication(SimplecrudApplication.class);
+		if (isStartupProfileActive(args)) {
+			application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEP_CAPACITY));
+		}
+		application.run(args);
+	}
+
+	/**
+	 * startupプロファイルを指定して起動したかを判定する。
+	 * 起動処理の記録は起動前に設定する必要があるため、コマンドライン引数・システムプロパティ・環境変数の
+	 * spring.profiles.activeのみを参照する。(application.propertiesでの指定は対象外)
+	 */
+	static boolean isStartupProfileActive(String[] args) {
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+		return environment.acceptsProfiles(Profiles.of("startup"));
 	}
 
 }
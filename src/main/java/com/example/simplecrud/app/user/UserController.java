@@ -1,31 +1,94 @@
 package com.example.simplecrud.app.user;
 
 import com.example.simplecrud.common.exception.DuplicateKeyBusinessException;
+import com.example.simplecrud.common.exception.OptimisticLockingFailureBusinessException;
 import com.example.simplecrud.domain.model.User;
+import com.example.simplecrud.domain.model.UserChangeSummary;
 import com.example.simplecrud.domain.model.UserExample;
+import com.example.simplecrud.domain.model.UserSort;
+import com.example.simplecrud.domain.service.UserImportResult;
+import com.example.simplecrud.domain.service.UserImportRow;
+import com.example.simplecrud.domain.service.UserPage;
 import com.example.simplecrud.domain.service.UserService;
-import com.github.dozermapper.core.Mapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.util.UriComponentsBuilder;
 import org.terasoluna.gfw.common.exception.ResourceNotFoundException;
 import org.terasoluna.gfw.common.message.ResultMessages;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.IThrottledTemplateProcessor;
+import org.thymeleaf.context.WebContext;
+
+import javax.servlet.ServletContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.groups.Default;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RequestMapping("user")
 @Controller
 public class UserController {
 
+    // 一覧の1ページあたりの件数
+    private static final int LIST_PAGE_SIZE = 20;
+
+    // 一覧をuid以外で並び替えた場合(オフセット方式)に移動できるページの上限
+    // (OFFSETは読み飛ばす行もDBで読むため、深いページは検索条件で絞り込んでもらう)
+    private static final int MAX_OFFSET_PAGE = 500;
+
+    // 全件表示で1回に送信するHTMLの量(バイト)
+    private static final int LIST_ALL_CHUNK_BYTES = 8192;
+
     @Autowired
-    protected Mapper beanMapper;
+    UserFormMapper userFormMapper;
 
     @Autowired
     UserService userService;
 
+    @Autowired
+    Validator validator;
+
+    @Autowired
+    ITemplateEngine templateEngine;
+
+    @Autowired
+    ServletContext servletContext;
+
     // modelに自動的に追加(attributeNameは「userForm」(クラス名の先頭を小文字)で登録される。)
     @ModelAttribute
     public UserForm setUpUserForm() {
@@ -35,14 +98,225 @@ public class UserController {
     // ---------------- 一覧 -----------------------------------------------------
 
     @RequestMapping("list")
-    public String list(Model model) {
+    public String list(UserSearchForm searchForm,
+                       @RequestParam(value = "after", required = false) String after,
+                       @RequestParam(value = "before", required = false) String before,
+                       @RequestParam(value = "page", defaultValue = "1") int pageNumber,
+                       HttpServletRequest request, WebRequest webRequest, Model model) {
+
+        // 全体の件数と最終更新日時が変わっていなければ、同じ検索条件の一覧を取得・描画せずに304を返す。
+        // (削除では最終更新日時が変わらないため、Last-Modifiedは使わずETagのみで判定する)
+        UserChangeSummary summary = userService.summarize();
+        if (webRequest.checkNotModified(toListETag(summary, request.getQueryString()))) {
+            return null;
+        }
 
-        // ページネーションは未実装です。
-        model.addAttribute("userList", userService.findAllByExample(new UserExample()));
+        return showList(searchForm, after, before, pageNumber, model);
+    }
+
+    /**
+     * 一覧画面を表示する。
+     */
+    private String showList(UserSearchForm searchForm, String after, String before, int pageNumber, Model model) {
+        UserExample example = toExample(searchForm);
+        model.addAttribute("userSearchForm", searchForm);
+        model.addAttribute("userCount", userService.countByExample(example));
+
+        // ページ移動・エクスポートのリンクに検索条件を引き継ぐ
+        if (example.getSort() == UserSort.UID_ASC) {
+            // キーセット方式でページングする。(uidをカーソルとして前後のページに移動する)
+            UserPage page = userService.findPage(example, after, before, LIST_PAGE_SIZE);
+            model.addAttribute("page", page);
+            model.addAttribute("userList", page.getContent());
+            if (page.getPrevUid() != null) {
+                model.addAttribute("prevUrl", toSearchUri("/user/list", searchForm).queryParam("before", page.getPrevUid()).toUriString());
+            }
+            if (page.getNextUid() != null) {
+                model.addAttribute("nextUrl", toSearchUri("/user/list", searchForm).queryParam("after", page.getNextUid()).toUriString());
+            }
+        } else {
+            // uid以外の並び順はuidのカーソルで移動できないため、オフセット方式でページングする。
+            // (次のページの有無を判定するため1件多く取得する)
+            int current = Math.max(1, Math.min(pageNumber, MAX_OFFSET_PAGE));
+            List<User> content = userService.findPageByExample(example, (current - 1) * LIST_PAGE_SIZE, LIST_PAGE_SIZE + 1);
+            boolean hasNext = content.size() > LIST_PAGE_SIZE && current < MAX_OFFSET_PAGE;
+            if (content.size() > LIST_PAGE_SIZE) {
+                content = content.subList(0, LIST_PAGE_SIZE);
+            }
+            model.addAttribute("page", new UserPage(content, null, null));
+            model.addAttribute("userList", content);
+            if (current > 1) {
+                model.addAttribute("prevUrl", toSearchUri("/user/list", searchForm).queryParam("page", current - 1).toUriString());
+            }
+            if (hasNext) {
+                model.addAttribute("nextUrl", toSearchUri("/user/list", searchForm).queryParam("page", current + 1).toUriString());
+            }
+        }
+        model.addAttribute("csvUrl", toSearchUri("/user/export", searchForm).queryParam("format", "csv").toUriString());
+        model.addAttribute("tsvUrl", toSearchUri("/user/export", searchForm).queryParam("format", "tsv").toUriString());
+        model.addAttribute("allUrl", toSearchUri("/user/list/all", searchForm).toUriString());
 
         return "user/list";
     }
 
+    /**
+     * 検索条件に一致する全件を1画面に表示する。
+     * カーソルで読み込みながら描画し、一定の量ごとにクライアントに送信するため、
+     * 最初の行が表示されるまでの時間とメモリ使用量は件数に依存しない。
+     */
+    @GetMapping("list/all")
+    public ResponseEntity<StreamingResponseBody> listAll(UserSearchForm searchForm, HttpServletRequest request,
+                                                         HttpServletResponse response, Locale locale) {
+        UserExample example = toExample(searchForm);
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            userService.streamByExample(example, users -> {
+                Map<String, Object> variables = new HashMap<>();
+                variables.put("userSearchForm", searchForm);
+                variables.put("userList", users);
+                WebContext context = new WebContext(request, response, servletContext, locale, variables);
+
+                // th:eachはcursorから1件ずつ取り出すため、描画を区切るたびに必要な分だけ読み込まれる。
+                IThrottledTemplateProcessor processor = templateEngine.processThrottled("user/listAll", context);
+                try {
+                    while (!processor.isFinished()) {
+                        processor.process(LIST_ALL_CHUNK_BYTES, writer);
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        };
+
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                .body(body);
+    }
+
+    // ---------------- エクスポート -------------------------------------------------
+
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> export(UserSearchForm searchForm,
+                                                        @RequestParam(value = "format", defaultValue = "csv") String format) {
+        UserExportFormat exportFormat = UserExportFormat.ofExtension(format);
+        if (exportFormat == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format: " + format);
+        }
+        UserExample example = toExample(searchForm);
+
+        // カーソルで1件ずつ読み込みながら書き出すため、件数に関わらずメモリ使用量は一定
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            exportFormat.writeHeader(writer);
+            userService.scanByExample(example, user -> exportFormat.writeRow(writer, user));
+            writer.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("users." + exportFormat.getExtension()).build().toString())
+                .body(body);
+    }
+
+    /**
+     * 検索フォームをExampleクラスに変換する。
+     */
+    private UserExample toExample(UserSearchForm searchForm) {
+        UserExample example = new UserExample();
+        UserExample.Criteria criteria = example.createCriteria();
+        if (StringUtils.hasText(searchForm.getUid())) {
+            criteria.andUidLike(toStartingCondition(searchForm.getUid()));
+        }
+        if (StringUtils.hasText(searchForm.getName())) {
+            criteria.andNameLike(toContainingCondition(searchForm.getName()));
+        }
+        if (StringUtils.hasText(searchForm.getMail())) {
+            criteria.andMailLike(toStartingCondition(searchForm.getMail()));
+        }
+        if (searchForm.getStatus() != null) {
+            criteria.andStatusEqualTo(searchForm.getStatus());
+        }
+        // 日付の範囲はToの翌日0時未満とする。(created_at/changed_atのインデックスで範囲検索できる形)
+        if (searchForm.getCreatedFrom() != null) {
+            criteria.andCreatedAtGreaterThanOrEqualTo(searchForm.getCreatedFrom().atStartOfDay());
+        }
+        if (searchForm.getCreatedTo() != null) {
+            criteria.andCreatedAtLessThan(searchForm.getCreatedTo().plusDays(1).atStartOfDay());
+        }
+        if (searchForm.getChangedFrom() != null) {
+            criteria.andChangedAtGreaterThanOrEqualTo(searchForm.getChangedFrom().atStartOfDay());
+        }
+        if (searchForm.getChangedTo() != null) {
+            criteria.andChangedAtLessThan(searchForm.getChangedTo().plusDays(1).atStartOfDay());
+        }
+        example.setSort(searchForm.getSort() != null ? searchForm.getSort() : UserSort.UID_ASC);
+        return example;
+    }
+
+    /**
+     * 一覧のETagを作成する。(全体の件数・最終更新日時と検索条件(クエリ文字列)から作成する弱いETag)
+     */
+    private static String toListETag(UserChangeSummary summary, String queryString) {
+        return toWeakETag(summary.getCount() + "@" + summary.getLastChangedAt() + "?" + queryString);
+    }
+
+    /**
+     * 参照画面のETagを作成する。(ユーザIDと最終更新日時から作成する弱いETag)
+     */
+    private static String toDetailETag(String uid, LocalDateTime changedAt) {
+        return toWeakETag(uid + "@" + changedAt);
+    }
+
+    // 値をそのままETagにするとユーザIDの文字によってはヘッダが壊れるため、ハッシュ値にする。
+    private static String toWeakETag(String value) {
+        return "W/\"" + DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * 部分一致検索用に、LIKEのワイルドカードをエスケープして前後に%を付与する。
+     * (PostgreSQLのLIKEはバックスラッシュがデフォルトのエスケープ文字)
+     */
+    private static String toContainingCondition(String value) {
+        return "%" + escapeLike(value) + "%";
+    }
+
+    /**
+     * 前方一致検索用に、LIKEのワイルドカードをエスケープして後ろに%を付与する。
+     */
+    private static String toStartingCondition(String value) {
+        return escapeLike(value) + "%";
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * 検索条件をクエリパラメータに設定したURIを作成する。(未入力の条件は含めない)
+     */
+    private static UriComponentsBuilder toSearchUri(String path, UserSearchForm searchForm) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromPath(path);
+        addQueryParam(builder, "uid", searchForm.getUid());
+        addQueryParam(builder, "name", searchForm.getName());
+        addQueryParam(builder, "mail", searchForm.getMail());
+        addQueryParam(builder, "status", searchForm.getStatus());
+        addQueryParam(builder, "createdFrom", searchForm.getCreatedFrom());
+        addQueryParam(builder, "createdTo", searchForm.getCreatedTo());
+        addQueryParam(builder, "changedFrom", searchForm.getChangedFrom());
+        addQueryParam(builder, "changedTo", searchForm.getChangedTo());
+        addQueryParam(builder, "sort", searchForm.getSort());
+        return builder;
+    }
+
+    private static void addQueryParam(UriComponentsBuilder builder, String name, Object value) {
+        if (value != null && StringUtils.hasText(value.toString())) {
+            builder.queryParam(name, value);
+        }
+    }
+
     // ---------------- 新規登録 -----------------------------------------------------
 
     @RequestMapping(value = "create", params = "form")
@@ -51,7 +325,7 @@ public class UserController {
     }
 
     @PostMapping(value = "create", params = "confirm")
-    public String createConfirm(@Validated UserForm form, BindingResult result, Model model) {
+    public String createConfirm(@Validated({Default.class, UserForm.Create.class}) UserForm form, BindingResult result, Model model) {
         if (result.hasErrors()) {
             return createRedo(form, model);
         }
@@ -66,13 +340,13 @@ public class UserController {
     }
 
     @PostMapping(value = "create")
-    public String create(@Validated UserForm form, BindingResult result, Model model, RedirectAttributes redirect) {
+    public String create(@Validated({Default.class, UserForm.Create.class}) UserForm form, BindingResult result, Model model, RedirectAttributes redirect) {
         if (result.hasErrors()) {
             return createRedo(form, model);
         }
 
         try {
-            User user = beanMapper.map(form, User.class);
+            User user = userFormMapper.map(form);
             userService.create(user);
         } catch (DuplicateKeyBusinessException e) {
             // 画面でもチェックしているが、念の為テーブル更新時のエラーを画面表示する。
@@ -92,13 +366,57 @@ public class UserController {
         return "user/createComplete";
     }
 
+    // ---------------- 一括登録 -----------------------------------------------------
+
+    @RequestMapping(value = "import", params = "form")
+    public String importForm(Model model) {
+        return "user/importForm";
+    }
+
+    @PostMapping(value = "import")
+    public String importUsers(@RequestParam("file") MultipartFile file, Model model, RedirectAttributes redirect)
+            throws IOException {
+        if (file.isEmpty()) {
+            model.addAttribute(ResultMessages.error().add("user.importFileEmpty"));
+            return importForm(model);
+        }
+
+        // CSVは1行ずつ読み込みながら登録する。(ファイル全体をメモリに展開しない)
+        UserImportResult importResult;
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            importResult = userService.createAll(new UserImportCsvReader(reader, this::toImportRow));
+        }
+
+        redirect.addFlashAttribute("importResult", importResult);
+        return "redirect:/user/import?complete";
+    }
+
+    /**
+     * 一括登録の1行を、画面と同じ入力チェック(UserForm)で検査してUserエンティティに変換する。
+     * ユーザIDの重複(UserForm.Create)はサービスでまとめて検査するため、ここでは検査しない。
+     */
+    private UserImportRow toImportRow(int lineNumber, UserForm form) {
+        Set<ConstraintViolation<UserForm>> violations = validator.validate(form);
+        if (!violations.isEmpty()) {
+            return UserImportRow.invalid(lineNumber, form.getUid(), violations.stream()
+                    .map(violation -> violation.getPropertyPath().toString())
+                    .collect(Collectors.toList()));
+        }
+        return UserImportRow.valid(lineNumber, userFormMapper.map(form));
+    }
+
+    @RequestMapping(value = "import", params = "complete")
+    public String importComplete(Model model) {
+        return "user/importComplete";
+    }
+
     // ---------------- 編集 ---------------------------------------------------------
 
     @PostMapping(value = "update", params = "form")
     public String updateForm(UserForm form, Model model) {
 
         User user = userService.findOneByPrimaryKey(form.getUid());
-        beanMapper.map(user, form);
+        userFormMapper.map(user, form);
 
         return "user/updateForm";
     }
@@ -125,8 +443,14 @@ public class UserController {
         }
 
         try {
-            User user = beanMapper.map(form, User.class);
+            User user = userFormMapper.map(form);
             userService.update(user);
+        } catch (OptimisticLockingFailureBusinessException e) {
+            // 編集中に他の利用者が更新した場合は、最新の内容を読み込み直して再度編集してもらう。
+            // (キャッシュは他のインスタンスでの更新を反映していない場合があるため、DBから読み込み直す)
+            model.addAttribute(ResultMessages.error().add("user.optimisticLockingFailure", form.getUid()));
+            userFormMapper.map(userService.reloadByPrimaryKey(form.getUid()), form);
+            return "user/updateForm";
         } catch (DataIntegrityViolationException e) {
             // 本来ならば、SQLエラーは個別にTry-Catchせず、共通処理でエラー画面に遷移させたい。
             model.addAttribute(ResultMessages.error().add("common.sqlError", e.getMessage()));
@@ -166,16 +490,28 @@ public class UserController {
     // ---------------- 参照 ---------------------------------------------------------
 
     @RequestMapping(value = "detail/{uid}")
-    public String detail(UserForm form, Model model, @PathVariable("uid") String uid) {
+    public String detail(UserForm form, Model model, @PathVariable("uid") String uid, WebRequest webRequest) {
         // 参照時にはバリデーションを行わない。(idしか必要ないので)
 
         try {
+            // キャッシュはインスタンスごとのため、他のインスタンスで更新・削除されていれば古い。
+            // DBの最終更新日時と異なる場合は読み直し、表示する内容と同じ最終更新日時からETagを作成する。
+            LocalDateTime changedAt = userService.findChangedAtByPrimaryKey(uid);
             User user = userService.findOneByPrimaryKey(uid);
+            if (!user.getChangedAt().equals(changedAt)) {
+                user = userService.reloadByPrimaryKey(uid);
+            }
+
+            // 最終更新日時が変わっていなければ、描画せずに304を返す。
+            if (webRequest.checkNotModified(toDetailETag(uid, user.getChangedAt()),
+                    user.getChangedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())) {
+                return null;
+            }
             model.addAttribute("user", user);
             form.setUid(uid);
         } catch (ResourceNotFoundException e) {
             model.addAttribute(ResultMessages.error().add("user.notFound", uid));
-            return list(model);
+            return showList(new UserSearchForm(), null, null, 1, model);
         }
         return "user/detail";
     }
@@ -0,0 +1,112 @@
+package com.example.simplecrud.app.user;
+
+import com.example.simplecrud.domain.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * ユーザのエクスポート形式(CSV/TSV)
+ * パスワードは出力しない。
+ */
+enum UserExportFormat {
+
+    CSV(',', "text/csv", "csv"),
+    TSV('\t', "text/tab-separated-values", "tsv");
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+
+    private static final String[] HEADER = {"uid", "name", "mail", "status", "created_at", "changed_at", "comment"};
+
+    private final char delimiter;
+
+    private final String contentType;
+
+    private final String extension;
+
+    UserExportFormat(char delimiter, String contentType, String extension) {
+        this.delimiter = delimiter;
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    /**
+     * 拡張子(csv, tsv)から形式を取得する。
+     *
+     * @param extension 拡張子(大文字小文字は区別しない)
+     * @return 形式(該当しない場合はnull)
+     */
+    static UserExportFormat ofExtension(String extension) {
+        for (UserExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    String getExtension() {
+        return extension;
+    }
+
+    /**
+     * ヘッダ行を出力する。
+     */
+    void writeHeader(Writer writer) {
+        writeLine(writer, HEADER);
+    }
+
+    /**
+     * Userエンティティを1行として出力する。
+     */
+    void writeRow(Writer writer, User user) {
+        writeLine(writer, new String[]{
+                user.getUid(),
+                user.getName(),
+                user.getMail(),
+                user.getStatus() == null ? null : user.getStatus().toString(),
+                format(user.getCreatedAt()),
+                format(user.getChangedAt()),
+                user.getComment()
+        });
+    }
+
+    private void writeLine(Writer writer, String[] values) {
+        try {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(delimiter);
+                }
+                writer.write(escape(values[i]));
+            }
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 区切り文字、ダブルクォート、改行を含む値はダブルクォートで囲む。(RFC 4180)
+     */
+    private String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(delimiter) < 0 && value.indexOf('"') < 0
+                && value.indexOf('\r') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String format(LocalDateTime dateTime) {
+        return dateTime == null ? null : DATE_TIME_FORMATTER.format(dateTime);
+    }
+}
@@ -4,11 +4,13 @@ import com.example.simplecrud.common.validation.UserDuplicateKey;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
+import java.time.LocalDateTime;
 
 @Data
 @AllArgsConstructor
@@ -17,10 +19,17 @@ public class UserForm implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * 新規登録の画面でのみ行う入力チェックのグループ(ユーザIDの重複)
+     * 一括登録では重複をまとめて検査するため、行ごとにDBに問い合わせないよう対象外とする。
+     */
+    public interface Create {
+    }
+
     /**
      * ユーザID
      */
-    @UserDuplicateKey
+    @UserDuplicateKey(groups = Create.class)
     @NotBlank
     @Size(max = 20)
     private String uid;
@@ -52,4 +61,11 @@ public class UserForm implements Serializable {
      */
     @Size(max = 1000)
     private String comment;
+
+    /**
+     * バージョン(編集開始時の最終更新日時)
+     * 編集中に他の利用者が更新したかを判定するため、画面間でhiddenで引き継ぐ。
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime version;
 }
\ No newline at end of file
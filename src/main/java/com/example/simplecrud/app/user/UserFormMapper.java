@@ -0,0 +1,30 @@
+package com.example.simplecrud.app.user;
+
+import com.example.simplecrud.domain.model.User;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+/**
+ * UserFormとUserエンティティの変換
+ * 実装クラス(UserFormMapperImpl)はMapStructによりコンパイル時に生成されるため、リフレクションを使わない。
+ * コレクション型のフィールドは無いため、Dozerのnon-cumulative設定に相当する考慮は不要。
+ */
+@Mapper(componentModel = "spring")
+public interface UserFormMapper {
+
+    /**
+     * フォームからUserエンティティを生成する。(自動設定項目はサービスで設定する)
+     * 最終更新日時にはバージョンを設定する。(更新時の楽観的排他制御に使う)
+     */
+    @Mapping(target = "status", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "changedAt", source = "version")
+    User map(UserForm form);
+
+    /**
+     * Userエンティティの値をフォームに上書きする。(最終更新日時をバージョンとする)
+     */
+    @Mapping(target = "version", source = "changedAt")
+    void map(User user, @MappingTarget UserForm form);
+}
@@ -0,0 +1,166 @@
+package com.example.simplecrud.app.user;
+
+import com.example.simplecrud.domain.service.UserImportRow;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+
+/**
+ * 一括登録用のCSV(uid,name,pass,mail,comment)を1レコードずつUserFormに変換し、入力行(UserImportRow)にする。
+ * 全行をメモリに展開しないため、大きなファイルでも一定のメモリで読み込める。
+ * 先頭行が「uid」で始まる場合はヘッダ行として読み飛ばす。
+ * 行番号はファイル上の行(ヘッダ行・空行・項目内の改行を含めて数えた、レコードの開始行)とする。
+ */
+class UserImportCsvReader implements Iterable<UserImportRow> {
+
+    private static final String HEADER_FIRST_COLUMN = "uid";
+
+    private final BufferedReader reader;
+
+    // 行番号とフォームから入力行を作成する処理(入力チェックと変換)
+    private final BiFunction<Integer, UserForm, UserImportRow> converter;
+
+    // 次に読み込む文字の行番号
+    private int lineNumber = 1;
+
+    UserImportCsvReader(Reader reader, BiFunction<Integer, UserForm, UserImportRow> converter) {
+        this.reader = new BufferedReader(reader);
+        this.converter = converter;
+    }
+
+    @Override
+    public Iterator<UserImportRow> iterator() {
+        return new Iterator<UserImportRow>() {
+
+            private Record next = first();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public UserImportRow next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                UserImportRow row = converter.apply(next.lineNumber, toForm(next.fields));
+                next = readRecord();
+                return row;
+            }
+        };
+    }
+
+    private Record first() {
+        Record record = readRecord();
+        if (record != null && HEADER_FIRST_COLUMN.equalsIgnoreCase(stripBom(record.fields.get(0)))) {
+            return readRecord();
+        }
+        return record;
+    }
+
+    private static UserForm toForm(List<String> record) {
+        UserForm form = new UserForm();
+        form.setUid(column(record, 0));
+        form.setName(column(record, 1));
+        form.setPass(column(record, 2));
+        form.setMail(column(record, 3));
+        form.setComment(column(record, 4));
+        return form;
+    }
+
+    private static String column(List<String> record, int index) {
+        if (index >= record.size() || record.get(index).isEmpty()) {
+            return null;
+        }
+        return index == 0 ? stripBom(record.get(index)) : record.get(index);
+    }
+
+    private static String stripBom(String value) {
+        return value.startsWith("\uFEFF") ? value.substring(1) : value;
+    }
+
+    /**
+     * 1レコードを読み込む。(RFC 4180: ダブルクォートで囲まれた項目内の区切り文字・改行に対応)
+     * 空行は読み飛ばす。
+     *
+     * @return レコード(ファイルの終端の場合はnull)
+     */
+    private Record readRecord() {
+        try {
+            int c = read();
+            while (c == '\r' || c == '\n') {
+                c = read();
+            }
+            if (c == -1) {
+                return null;
+            }
+            int recordLineNumber = lineNumber;
+
+            List<String> record = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        break;
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            // 閉じのダブルクォート
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else {
+                    if (c == -1 || c == '\n') {
+                        break;
+                    }
+                    if (c == ',') {
+                        record.add(field.toString());
+                        field.setLength(0);
+                    } else if (c == '"' && field.length() == 0) {
+                        quoted = true;
+                    } else if (c != '\r') {
+                        field.append((char) c);
+                    }
+                }
+                c = read();
+            }
+            record.add(field.toString());
+            return new Record(recordLineNumber, record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 1文字読み込み、改行の場合は行番号を進める。(項目内の改行も数える)
+     */
+    private int read() throws IOException {
+        int c = reader.read();
+        if (c == '\n') {
+            lineNumber++;
+        }
+        return c;
+    }
+
+    private static class Record {
+        private final int lineNumber;
+        private final List<String> fields;
+
+        private Record(int lineNumber, List<String> fields) {
+            this.lineNumber = lineNumber;
+            this.fields = fields;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.simplecrud.app.user;
+
+import com.example.simplecrud.common.datasource.ReadYourWritesInterceptor;
+import com.example.simplecrud.domain.service.UserDataVersion;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * ユーザ一覧画面(/user/list)の描画結果のキャッシュ
+ * <p>
+ * キーはデータのバージョン(UserDataVersion)、ロケール、ログインユーザ名、クエリ文字列とし、
+ * 登録・更新・削除があるまでは同じ条件の一覧を再描画せずに返す。
+ * キャッシュはセッションをまたいで共有される。一覧画面にはセッションごとの内容
+ * (CSRFトークン、フラッシュ属性のメッセージ、キー以外の利用者ごとの表示など)を出力しないこと。
+ * 他のインスタンスでの更新やレプリカの遅延は反映されないため、有効期限を短くすること。
+ * 更新直後の利用者(read-your-writes)はキャッシュを使わない。
+ * 描画時のETagも保持し、ブラウザが同じETagを持っている場合は304を返す。
+ * </p>
+ */
+public class UserListPageCacheFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private final UserDataVersion dataVersion;
+
+    private final Cache<String, CachedPage> cache;
+
+    public UserListPageCacheFilter(UserDataVersion dataVersion, Duration timeToLive, long maximumBytes) {
+        this.dataVersion = dataVersion;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .maximumWeight(maximumBytes)
+                .weigher((String key, CachedPage page) -> page.body.length)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * ヒット率などを/actuator/metricsのcache.*(cache=userListPages)に出力する。
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "userListPages");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!HttpMethod.GET.matches(request.getMethod()) || ReadYourWritesInterceptor.isPrimaryRequired(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long version = dataVersion.current();
+        String key = toKey(version, request);
+        CachedPage cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (cached.cacheControl != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, cached.cacheControl);
+            }
+            // 描画時のETagと一致する場合は本文を返さない。(条件付きGET)
+            if (cached.eTag != null && new ServletWebRequest(request, response).checkNotModified(cached.eTag)) {
+                return;
+            }
+            response.setContentType(cached.contentType);
+            response.setContentLength(cached.body.length);
+            response.getOutputStream().write(cached.body);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, wrapper);
+            // 描画中に更新された場合は古い可能性があるためキャッシュしない。
+            if (wrapper.getStatus() == HttpServletResponse.SC_OK && isHtml(wrapper.getContentType())
+                    && version == dataVersion.current()) {
+                cache.put(key, new CachedPage(wrapper.getContentType(), wrapper.getHeader(HttpHeaders.ETAG),
+                        wrapper.getHeader(HttpHeaders.CACHE_CONTROL), wrapper.getContentAsByteArray()));
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * キャッシュのキー(バージョン、ロケール、ログインユーザ名、クエリ文字列)
+     */
+    static String toKey(long version, HttpServletRequest request) {
+        return version
+                + "|" + request.getLocale().toLanguageTag()
+                + "|" + (request.getRemoteUser() == null ? "" : request.getRemoteUser())
+                + "?" + (request.getQueryString() == null ? "" : request.getQueryString());
+    }
+
+    private static boolean isHtml(String contentType) {
+        return contentType != null && MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.TEXT_HTML);
+    }
+
+    static class CachedPage {
+
+        private final String contentType;
+
+        private final String eTag;
+
+        private final String cacheControl;
+
+        private final byte[] body;
+
+        CachedPage(String contentType, String eTag, String cacheControl, byte[] body) {
+            this.contentType = contentType;
+            this.eTag = eTag;
+            this.cacheControl = cacheControl;
+            this.body = body;
+        }
+    }
+}
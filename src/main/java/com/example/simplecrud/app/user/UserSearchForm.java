@@ -0,0 +1,69 @@
+package com.example.simplecrud.app.user;
+
+import com.example.simplecrud.domain.model.UserSort;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * ユーザ一覧・エクスポートの検索条件
+ * 各条件はdb/schema.sqlのインデックスで検索できる形(前方一致・トライグラム・範囲)に変換する。
+ */
+@Data
+@NoArgsConstructor
+public class UserSearchForm implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * ユーザID(前方一致)
+     */
+    private String uid;
+
+    /**
+     * 氏名(部分一致)
+     */
+    private String name;
+
+    /**
+     * メール(前方一致)
+     */
+    private String mail;
+
+    /**
+     * ステータス
+     */
+    private Boolean status;
+
+    /**
+     * 作成日(From)
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate createdFrom;
+
+    /**
+     * 作成日(To)
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate createdTo;
+
+    /**
+     * 最終更新日(From)
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate changedFrom;
+
+    /**
+     * 最終更新日(To)
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate changedTo;
+
+    /**
+     * 並び順(未指定の場合はユーザIDの昇順)
+     */
+    private UserSort sort;
+}
@@ -0,0 +1,133 @@
+package com.example.simplecrud.common.datasource;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * コネクションを同時に取得できる数を、コネクションプールのサイズまでに制限する。
+ * <p>
+ * 仮想スレッドなどでリクエストを処理するスレッド数に上限が無い場合、プールを超えた分は
+ * HikariCPのコネクション待ちで一斉にタイムアウトする。先に到着した順に待たせ(公平なセマフォ)、
+ * プールから取得できる数だけコネクションを渡す。
+ * 待ち時間の上限を超えた場合は、HikariCPと同じくSQLTransientConnectionExceptionとする。
+ * </p>
+ * <p>
+ * プール(プライマリ・レプリカ)ごとに、そのプールのサイズで作成すること。
+ * コネクションを取得してから返却(close)するまでを数えるため、キャッシュから返す処理や
+ * SQLを実行しない処理(LazyConnectionDataSourceProxy)は数えず、画面の描画前に返却されたコネクションも数えない。
+ * エクスポートのようにカーソルで読みながら出力する処理は、出力が終わるまでコネクションと同じく数える。
+ * </p>
+ */
+public class ConnectionLimitDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+
+    private final long timeoutMillis;
+
+    public ConnectionLimitDataSource(DataSource targetDataSource, int maxConnections, Duration timeout) {
+        super(targetDataSource);
+        this.permits = new Semaphore(maxConnections, true);
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return withPermit(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return withPermit(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 取得を待っている数(/actuator/metricsの確認用)
+     */
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Connection limit reached - request timed out after " + timeoutMillis + "ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection.", e);
+        }
+    }
+
+    private Connection withPermit(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class}, new PermitReleasingInvocationHandler(connection));
+    }
+
+    /**
+     * コネクションのcloseで許可を返す。(複数回closeしても返すのは1回のみ)
+     */
+    private class PermitReleasingInvocationHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        private boolean released;
+
+        PermitReleasingInvocationHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getTargetConnection":
+                    return target;
+                case "close":
+                    if (released) {
+                        return null;
+                    }
+                    released = true;
+                    try {
+                        target.close();
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                default:
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+            }
+        }
+    }
+}
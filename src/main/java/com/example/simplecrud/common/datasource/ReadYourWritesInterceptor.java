@@ -0,0 +1,93 @@
+package com.example.simplecrud.common.datasource;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.view.RedirectView;
+import org.springframework.web.servlet.view.UrlBasedViewResolver;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+
+/**
+ * 更新した利用者の参照を一定時間プライマリに接続させる。(read-your-writes)
+ * <p>
+ * 更新系のリクエスト(GET/HEAD以外)が成功した場合にCookieを発行し、Cookieの有効期間内のリクエストは
+ * 読み取り専用でもプライマリに接続する。(PRGのリダイレクト先で更新前のデータが表示されないように)
+ * 成功の判定はPRGのリダイレクトで行う。入力チェックのエラーや楽観ロックの競合で画面を再表示する場合、
+ * 例外で終了した場合は発行しない。
+ * Cookieで判定するため、複数のインスタンスに振り分けられても有効。
+ * 非同期処理(エクスポートなど)の別スレッドには引き継がない。
+ * 有効期間はレプリケーションの遅延より長くすること。
+ * </p>
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    static final String COOKIE_NAME = "PRIMARY_READ";
+
+    private final Duration stickiness;
+
+    public ReadYourWritesInterceptor(Duration stickiness) {
+        this.stickiness = stickiness;
+    }
+
+    /**
+     * 更新した直後でプライマリから参照させるリクエストかを判定する。
+     */
+    public static boolean isPrimaryRequired(HttpServletRequest request) {
+        return WebUtils.getCookie(request, COOKIE_NAME) != null;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isWrite(request) || isPrimaryRequired(request)) {
+            ReplicaRoutingContext.requirePrimary();
+        }
+        return true;
+    }
+
+    /**
+     * 更新系のリクエストがリダイレクト(PRG)で完了した場合のみCookieを発行する。
+     * リダイレクトのレスポンスはこの後に出力されるため、ヘッダを追加できる。
+     */
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        if (isWrite(request) && isRedirect(modelAndView)) {
+            ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, "1")
+                    .path(request.getContextPath().isEmpty() ? "/" : request.getContextPath())
+                    .maxAge(stickiness)
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build();
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicaRoutingContext.clear();
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    private static boolean isRedirect(ModelAndView modelAndView) {
+        if (modelAndView == null) {
+            return false;
+        }
+        String viewName = modelAndView.getViewName();
+        return (viewName != null && viewName.startsWith(UrlBasedViewResolver.REDIRECT_URL_PREFIX))
+                || modelAndView.getView() instanceof RedirectView;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReplicaRoutingContext.clear();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.simplecrud.common.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * 読み取り専用トランザクションでもプライマリに接続させるための、スレッドごとの指定
+ * <p>
+ * 自分の更新を直後に参照する場合(read-your-writes)や、
+ * レプリケーションの遅延による古いデータをキャッシュに載せたくない場合に使う。
+ * コネクションは最初のSQLの実行時に取得されるため、トランザクションの開始後に指定しても有効。
+ * </p>
+ */
+public final class ReplicaRoutingContext {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    /**
+     * プライマリへの接続を指定されているかを判定する。
+     */
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    /**
+     * 現在のスレッドの処理をプライマリに接続させる。(clearを必ず呼ぶこと)
+     */
+    public static void requirePrimary() {
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        PRIMARY_REQUIRED.remove();
+    }
+
+    /**
+     * 処理をプライマリに接続させて実行する。
+     *
+     * @param action 処理
+     * @return 処理の戻り値
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_REQUIRED.remove();
+            } else {
+                PRIMARY_REQUIRED.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.simplecrud.common.health;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * コネクションプール(HikariCP)の飽和状態
+ * <p>
+ * 空きコネクションが無く、コネクションの取得を待っているスレッドがある場合はSATURATEDとする。
+ * プールごとの使用数・待ち数を詳細に出力する。(時系列は/actuator/prometheusのhikaricp_connections_*)
+ * </p>
+ */
+public class HikariPoolHealthIndicator extends AbstractHealthIndicator {
+
+    public static final Status SATURATED = new Status("SATURATED", "Connection pool is exhausted and threads are waiting.");
+
+    private final List<HikariDataSource> dataSources;
+
+    public HikariPoolHealthIndicator(List<HikariDataSource> dataSources) {
+        super("Connection pool health check failed");
+        this.dataSources = dataSources;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        boolean saturated = false;
+        for (HikariDataSource dataSource : dataSources) {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            if (pool == null) {
+                // 初回のコネクション取得まではプールが作成されない
+                builder.withDetail(dataSource.getPoolName(), "not started");
+                continue;
+            }
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("active", pool.getActiveConnections());
+            details.put("idle", pool.getIdleConnections());
+            details.put("total", pool.getTotalConnections());
+            details.put("max", dataSource.getMaximumPoolSize());
+            details.put("pending", pool.getThreadsAwaitingConnection());
+            builder.withDetail(dataSource.getPoolName(), details);
+
+            if (pool.getThreadsAwaitingConnection() > 0 && pool.getIdleConnections() == 0) {
+                saturated = true;
+            }
+        }
+        builder.status(saturated ? SATURATED : Status.UP);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.simplecrud.common.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.List;
+
+/**
+ * MyBatisのステートメントごとの処理時間と件数を計測する。
+ * <ul>
+ * <li>mybatis.statement: 処理時間(タグ: statement, command, exception)</li>
+ * <li>mybatis.statement.rows: 取得件数(select)・更新件数(insert/update/delete)(タグ: statement, command)</li>
+ * </ul>
+ * カーソル(queryCursor)はオープンまでの時間のみを計測し、件数は計測しない。
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class MyBatisMetricsInterceptor implements Interceptor {
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    public MyBatisMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        String statement = shortId(mappedStatement.getId());
+        String command = mappedStatement.getSqlCommandType().name();
+        String exception = NONE;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Object result = invocation.proceed();
+            recordRows(statement, command, result);
+            return result;
+        } catch (Throwable e) {
+            // proceed()はリフレクションで呼び出すため、InvocationTargetExceptionから元の例外を取り出す。
+            exception = ExceptionUtil.unwrapThrowable(e).getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("mybatis.statement")
+                    .description("MyBatisのステートメントの処理時間")
+                    .tag("statement", statement)
+                    .tag("command", command)
+                    .tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    private void recordRows(String statement, String command, Object result) {
+        long rows;
+        if (result instanceof List) {
+            rows = ((List<?>) result).size();
+        } else if (result instanceof Integer && (Integer) result >= 0) {
+            // BATCHのupdateは件数ではなく負の定数を返すため対象外
+            rows = (Integer) result;
+        } else {
+            return;
+        }
+        DistributionSummary.builder("mybatis.statement.rows")
+                .description("MyBatisのステートメントの取得・更新件数")
+                .tag("statement", statement)
+                .tag("command", command)
+                .register(meterRegistry)
+                .record(rows);
+    }
+
+    /**
+     * ステートメントIDからパッケージ名を除く。(例: UserRepository.selectByPrimaryKey)
+     */
+    private static String shortId(String id) {
+        int methodSeparator = id.lastIndexOf('.');
+        int classSeparator = methodSeparator > 0 ? id.lastIndexOf('.', methodSeparator - 1) : -1;
+        return id.substring(classSeparator + 1);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.simplecrud.common.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * サービスのメソッドごとの処理時間と例外の件数を計測する。
+ * <ul>
+ * <li>user.service: 処理時間(タグ: method, exception)</li>
+ * <li>user.service.errors: 例外の件数(タグ: method, exception)</li>
+ * </ul>
+ * トランザクションのコミットやキャッシュも含めて計測するため、最も外側で実行する。
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceMetricsAspect {
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.example.simplecrud.domain.service.UserService.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        String exception = NONE;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            meterRegistry.counter("user.service.errors", "method", method, "exception", exception).increment();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("user.service")
+                    .description("UserServiceの処理時間")
+                    .tag("method", method)
+                    .tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.simplecrud.common.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 起動時間のレポート
+ * <p>
+ * 起動完了時(ApplicationReadyEvent)に、JVMの起動からの時間をログと/actuator/metricsのapplication.ready.timeに出力する。
+ * 起動処理のステップ(ApplicationStartup)が記録されている場合は、時間のかかったステップも出力する。
+ * ステップの時間は内側のステップ(依存するBeanの生成など)を含む。
+ * ステップはstartupプロファイルを指定して起動した場合のみ記録される。(SimplecrudApplication.main、テストでは記録されない)
+ * </p>
+ */
+public class StartupTimingReporter implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimingReporter.class);
+
+    private final ApplicationStartup applicationStartup;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int topSteps;
+
+    private final boolean exitAfterReady;
+
+    // ゲージは値の取得元を弱参照で保持するため、GCで回収されないようフィールドに保持する。
+    private volatile Duration readyTime;
+
+    /**
+     * @param applicationStartup 起動処理のステップの記録
+     * @param meterRegistry      メトリクスの出力先
+     * @param topSteps           出力するステップの件数(時間のかかった順)
+     * @param exitAfterReady     起動完了後に終了する場合はtrue(AppCDSのクラスリストを作成する学習実行用)
+     */
+    public StartupTimingReporter(ApplicationStartup applicationStartup, MeterRegistry meterRegistry, int topSteps,
+                                 boolean exitAfterReady) {
+        this.applicationStartup = applicationStartup;
+        this.meterRegistry = meterRegistry;
+        this.topSteps = topSteps;
+        this.exitAfterReady = exitAfterReady;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        readyTime = Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime());
+        TimeGauge.builder("application.ready.time", this, TimeUnit.MILLISECONDS, reporter -> reporter.readyTime.toMillis())
+                .description("JVMの起動から起動完了までの時間")
+                .register(meterRegistry);
+        logger.info(report(readyTime));
+
+        if (exitAfterReady) {
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    /**
+     * レポートの文字列を作成する。
+     *
+     * @param readyTime JVMの起動から起動完了までの時間
+     * @return レポート
+     */
+    String report(Duration readyTime) {
+        StringBuilder report = new StringBuilder()
+                .append("Application ready in ").append(readyTime.toMillis()).append(" ms (JVM uptime)");
+        if (!(applicationStartup instanceof BufferingApplicationStartup)) {
+            return report.toString();
+        }
+
+        StartupTimeline timeline = ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline();
+        report.append(", slowest startup steps:");
+        timeline.getEvents().stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(topSteps)
+                .forEach(timelineEvent -> {
+                    StartupStep step = timelineEvent.getStartupStep();
+                    report.append(String.format("%n%8d ms  %s", timelineEvent.getDuration().toMillis(), step.getName()));
+                    for (StartupStep.Tag tag : step.getTags()) {
+                        report.append(' ').append(tag.getKey()).append('=').append(tag.getValue());
+                    }
+                });
+        return report.toString();
+    }
+}
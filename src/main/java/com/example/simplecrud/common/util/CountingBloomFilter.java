@@ -0,0 +1,121 @@
+package com.example.simplecrud.common.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 文字列のカウンティングBloomフィルタ(スレッドセーフ)
+ * <p>
+ * mightContainがfalseを返した値は確実に登録されていない。(trueの場合は誤判定の可能性がある)
+ * 各カウンタは4bitで、上限(15)に達したカウンタは以後減算しない。(削除による誤判定の見逃しを防ぐため)
+ * 登録していない値をremoveすると、登録済みの値がfalseと判定される恐れがあるため、呼び出し側で保証すること。
+ * </p>
+ */
+public class CountingBloomFilter {
+
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final long COUNTER_MASK = 0xFL;
+
+    private final AtomicLongArray words;
+    private final int numCounters;
+    private final int numHashFunctions;
+
+    /**
+     * @param expectedInsertions 想定する登録件数
+     * @param fpp                許容する誤判定率(0 &lt; fpp &lt; 1)
+     */
+    public CountingBloomFilter(long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException();
+        }
+        long optimalCounters = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.numCounters = (int) Math.min(optimalCounters, Integer.MAX_VALUE - COUNTERS_PER_WORD);
+        this.numHashFunctions = Math.max(1, (int) Math.round((double) numCounters / expectedInsertions * Math.log(2)));
+        this.words = new AtomicLongArray((numCounters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < numHashFunctions; i++) {
+            increment(index(hash, i));
+        }
+    }
+
+    public void remove(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < numHashFunctions; i++) {
+            decrement(index(hash, i));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < numHashFunctions; i++) {
+            if (counter(index(hash, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(long hash, int i) {
+        // ダブルハッシング(上位32bitと下位32bitを2つのハッシュ値として使う)
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return Math.floorMod(h1 + i * h2, numCounters);
+    }
+
+    private long counter(int index) {
+        return (words.get(index / COUNTERS_PER_WORD) >>> shift(index)) & COUNTER_MASK;
+    }
+
+    private void increment(int index) {
+        int word = index / COUNTERS_PER_WORD;
+        int shift = shift(index);
+        while (true) {
+            long current = words.get(word);
+            if (((current >>> shift) & COUNTER_MASK) == COUNTER_MASK) {
+                return;
+            }
+            if (words.compareAndSet(word, current, current + (1L << shift))) {
+                return;
+            }
+        }
+    }
+
+    private void decrement(int index) {
+        int word = index / COUNTERS_PER_WORD;
+        int shift = shift(index);
+        while (true) {
+            long current = words.get(word);
+            long counter = (current >>> shift) & COUNTER_MASK;
+            if (counter == 0 || counter == COUNTER_MASK) {
+                return;
+            }
+            if (words.compareAndSet(word, current, current - (1L << shift))) {
+                return;
+            }
+        }
+    }
+
+    private static int shift(int index) {
+        return (index % COUNTERS_PER_WORD) * 4;
+    }
+
+    /**
+     * FNV-1a(64bit)にMurmurHash3の最終ミックスをかけたハッシュ値
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,8 +1,7 @@
 package com.example.simplecrud.common.validation;
 
-import com.example.simplecrud.app.user.UserForm;
-import com.example.simplecrud.domain.model.User;
 import com.example.simplecrud.domain.repository.UserRepository;
+import com.example.simplecrud.domain.service.UserUidFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.validation.ConstraintValidator;
@@ -13,6 +12,9 @@ public class UserDuplicateKeyValidator implements ConstraintValidator<UserDuplic
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    UserUidFilter userUidFilter;
+
     @Override
     public void initialize(UserDuplicateKey constraintAnnotation) {}
 
@@ -21,8 +23,11 @@ public class UserDuplicateKeyValidator implements ConstraintValidator<UserDuplic
         if (value == null) {
             return true;
         }
+        // Bloomフィルタで未登録と判定できた場合は、DBに問い合わせずに検査合格
+        if (!userUidFilter.mightContain(value)) {
+            return true;
+        }
         // 同じIDのデータが未登録の場合、検査合格
-        User user = userRepository.selectByPrimaryKey(value);
-        return user == null;
+        return !userRepository.existsByPrimaryKey(value);
     }
 }
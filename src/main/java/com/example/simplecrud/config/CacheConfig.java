@@ -0,0 +1,31 @@
+package com.example.simplecrud.config;
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    /**
+     * Caffeineによるインメモリキャッシュ
+     * キャッシュ名・サイズ・有効期限はspring.cache.*で設定する。
+     * 更新系の処理でのキャッシュの破棄は、トランザクションのコミット後に行う。
+     * キャッシュはインスタンスごとに持つため、破棄は更新したインスタンスにしか効かない。
+     * 他のインスタンスでは有効期限(spring.cache.caffeine.specのexpireAfterWrite)まで更新前のデータを返す。
+     */
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties) {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager();
+        caffeineCacheManager.setCacheSpecification(cacheProperties.getCaffeine().getSpec());
+        caffeineCacheManager.setCacheNames(cacheProperties.getCacheNames());
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+}
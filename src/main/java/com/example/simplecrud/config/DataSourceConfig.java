@@ -0,0 +1,130 @@
+package com.example.simplecrud.config;
+
+import com.example.simplecrud.common.datasource.ConnectionLimitDataSource;
+import com.example.simplecrud.common.datasource.ReplicaRoutingDataSource;
+import com.example.simplecrud.common.health.HikariPoolHealthIndicator;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportResource;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ImportResource("classpath:META-INF/spring/simplecrud-codelist.xml")
+public class DataSourceConfig {
+
+    /**
+     * アプリケーションが使うDataSource
+     * 読み取り専用トランザクションはレプリカ(app.datasource.replica.*)に、それ以外はプライマリに振り分ける。
+     * レプリカを設定しない場合は、すべてプライマリに接続する。
+     * トランザクションの属性が確定してから振り分けるため、コネクションは最初のSQLの実行時に取得する。
+     * コードリスト用のプール(simplecrud-codelist.xml)などがあるため、@Primaryとする。
+     * LazyConnectionDataSourceProxyは自動コミットと分離レベルの既定値が未指定だと、起動時にコネクションを取得して調べるため、
+     * プライマリのプールの設定から指定する。(分離レベルの指定が無い場合はPostgreSQLの既定値のREAD COMMITTED)
+     * app.datasource.connection-limit.enabled=true(既定はapp.request-executor.enabledと同じ)の場合は、
+     * プールごとに同時に取得できるコネクション数をそのプールのサイズまでに制限する。(ConnectionLimitDataSource)
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<HikariDataSource> replicaDataSource,
+                                 @Value("${app.datasource.connection-limit.enabled:${app.request-executor.enabled:false}}") boolean connectionLimit,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        DataSource primary = connectionLimit ? limitConnections(primaryDataSource, "primary", meterRegistry) : primaryDataSource;
+        HikariDataSource replicaPool = replicaDataSource.getIfAvailable();
+        DataSource replica = primary;
+        if (replicaPool != null) {
+            replica = connectionLimit ? limitConnections(replicaPool, "replica", meterRegistry) : replicaPool;
+        }
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, replica);
+        routingDataSource.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(routingDataSource);
+        dataSource.setDefaultAutoCommit(primaryDataSource.isAutoCommit());
+        if (primaryDataSource.getTransactionIsolation() != null) {
+            dataSource.setDefaultTransactionIsolationName(primaryDataSource.getTransactionIsolation());
+        } else {
+            dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        }
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    /**
+     * 同時に取得できるコネクション数をプールのサイズまでに制限する。(待ち時間の上限はconnection-timeoutと同じ)
+     * 待っている数は/actuator/metricsのjdbc.connections.waiting(pool=primary/replica)に出力する。
+     */
+    private static DataSource limitConnections(HikariDataSource pool, String name, ObjectProvider<MeterRegistry> meterRegistry) {
+        ConnectionLimitDataSource dataSource = new ConnectionLimitDataSource(pool, pool.getMaximumPoolSize(),
+                Duration.ofMillis(pool.getConnectionTimeout()));
+        meterRegistry.ifAvailable(registry -> Gauge.builder("jdbc.connections.waiting", dataSource, ConnectionLimitDataSource::getQueueLength)
+                .tag("pool", name)
+                .description("コネクションプールの空きを待っている数")
+                .register(registry));
+        return dataSource;
+    }
+
+    /**
+     * プライマリのコネクションプール
+     * spring.datasource.hikari.*で設定する。プールサイズの指定が無い場合はCPUコア数から決める。
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setMaximumPoolSize(defaultPoolSize());
+        return dataSource;
+    }
+
+    /**
+     * レプリカ(読み取り専用)のコネクションプール
+     * app.datasource.replica.jdbc-urlを指定した場合のみ作成する。その他の項目もHikariCPのプロパティ名で指定する。
+     */
+    @Bean
+    @ConditionalOnProperty("app.datasource.replica.jdbc-url")
+    @ConfigurationProperties("app.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("simplecrud-replica");
+        dataSource.setReadOnly(true);
+        dataSource.setMaximumPoolSize(defaultPoolSize());
+        return dataSource;
+    }
+
+    /**
+     * コネクションプールの飽和状態(/actuator/healthのhikariPool)
+     * リクエスト処理のプール(プライマリ・レプリカ)を名前で指定する。
+     * 型で一覧を取得すると、遅延初期化しているコードリスト用のプールまで起動時に作成されるため。
+     */
+    @Bean
+    public HikariPoolHealthIndicator hikariPoolHealthIndicator(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                                               @Qualifier("replicaDataSource") ObjectProvider<HikariDataSource> replicaDataSource) {
+        List<HikariDataSource> dataSources = new ArrayList<>();
+        dataSources.add(primaryDataSource);
+        replicaDataSource.ifAvailable(dataSources::add);
+        return new HikariPoolHealthIndicator(dataSources);
+    }
+
+    /**
+     * プールサイズの指定が無い場合のコネクション数(CPUコア数×2+1)
+     */
+    static int defaultPoolSize() {
+        return Runtime.getRuntime().availableProcessors() * 2 + 1;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.simplecrud.config;
+
+import com.example.simplecrud.common.metrics.MyBatisMetricsInterceptor;
+import com.example.simplecrud.common.metrics.ServiceMetricsAspect;
+import com.example.simplecrud.common.metrics.StartupTimingReporter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.metrics.ApplicationStartup;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * サービスの計測(/actuator/prometheusのuser_service_*)
+     */
+    @Bean
+    public ServiceMetricsAspect serviceMetricsAspect(MeterRegistry meterRegistry) {
+        return new ServiceMetricsAspect(meterRegistry);
+    }
+
+    /**
+     * MyBatisのステートメントの計測(/actuator/prometheusのmybatis_statement_*)
+     * Interceptorのbeanはmybatis-spring-boot-starterにより自動で登録される。
+     */
+    @Bean
+    public MyBatisMetricsInterceptor myBatisMetricsInterceptor(MeterRegistry meterRegistry) {
+        return new MyBatisMetricsInterceptor(meterRegistry);
+    }
+
+    /**
+     * 起動時間のレポート(ログと/actuator/metricsのapplication.ready.time)
+     * ApplicationStartupはApplicationContextが登録するbean("applicationStartup")
+     */
+    @Bean
+    public StartupTimingReporter startupTimingReporter(ApplicationStartup applicationStartup, MeterRegistry meterRegistry,
+                                                       @Value("${app.startup.report.steps:10}") int topSteps,
+                                                       @Value("${app.startup.exit-after-ready:false}") boolean exitAfterReady) {
+        return new StartupTimingReporter(applicationStartup, meterRegistry, topSteps, exitAfterReady);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.simplecrud.config;
+
+import org.apache.ibatis.mapping.DatabaseIdProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MyBatisConfig {
+
+    /**
+     * DBの種類の識別子(Mapper XMLの_databaseIdで参照する)
+     * app.datasource.database-idで指定する。(postgresql, h2, oracle, sqlserver)
+     * DatabaseMetaDataから判定すると起動時にコネクションを取得し、DBが起動していないとアプリケーションも起動できないため、設定で固定する。
+     */
+    @Bean
+    public DatabaseIdProvider databaseIdProvider(@Value("${app.datasource.database-id:postgresql}") String databaseId) {
+        return dataSource -> databaseId;
+    }
+}
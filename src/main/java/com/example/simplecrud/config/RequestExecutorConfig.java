@@ -0,0 +1,99 @@
+package com.example.simplecrud.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * リクエストを処理するスレッドの切り替え(app.request-executor.enabled=trueの場合のみ)
+ * <p>
+ * TomcatのスレッドプールをアプリケーションのExecutorに置き換え、非同期処理(エクスポートなど)も同じExecutorで実行する。
+ * app.request-executor.virtual-threads=trueで仮想スレッドが使えるJava(21以降)の場合は、リクエストごとに仮想スレッドを作る。
+ * JDBCのI/O待ちでスレッドを占有しないため、同時に処理できるリクエスト数がスレッド数(server.tomcat.threads.max)で頭打ちにならない。
+ * 仮想スレッドが使えない場合は、app.request-executor.max-threadsの固定サイズのプールとする。
+ * 待ち行列はapp.request-executor.queue-capacityまでとし、超えた場合は受け付けない。(Tomcatは接続を閉じる)
+ * </p>
+ * <p>
+ * スレッド数の上限が無くなる分、コネクションの同時取得数をプールごとのサイズで制限する。(DataSourceConfig、ConnectionLimitDataSource)
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty("app.request-executor.enabled")
+public class RequestExecutorConfig implements WebMvcConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestExecutorConfig.class);
+
+    private final ExecutorService requestExecutor;
+
+    public RequestExecutorConfig(@Value("${app.request-executor.virtual-threads:true}") boolean virtualThreads,
+                                 @Value("${app.request-executor.max-threads:200}") int maxThreads,
+                                 @Value("${app.request-executor.queue-capacity:100}") int queueCapacity) {
+        ExecutorService executor = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        if (executor == null) {
+            if (virtualThreads) {
+                logger.warn("Virtual threads are not available on Java {}. Falling back to a pool of {} threads.",
+                        System.getProperty("java.version"), maxThreads);
+            }
+            // 待ち行列に上限を設け、処理しきれないリクエストをメモリに溜め込まない。
+            executor = new ThreadPoolExecutor(maxThreads, maxThreads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("request-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+        this.requestExecutor = executor;
+    }
+
+    /**
+     * リクエストを処理するExecutor(アプリケーションの終了時にshutdownされる)
+     * 固定サイズのプールの場合は、スレッド数・待ち行列の長さを/actuator/metricsのexecutor.*に出力する。
+     */
+    @Bean
+    public ExecutorService requestExecutor(MeterRegistry meterRegistry) {
+        new ExecutorServiceMetrics(requestExecutor, "requestExecutor", Tags.empty()).bindTo(meterRegistry);
+        return requestExecutor;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> requestExecutorCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(requestExecutor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(requestExecutor));
+    }
+
+    /**
+     * 仮想スレッドのExecutorを作成する。(コンパイル時のJavaのバージョンに依存しないようリフレクションで呼び出す)
+     *
+     * @return Executor(仮想スレッドが使えない場合はnull)
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
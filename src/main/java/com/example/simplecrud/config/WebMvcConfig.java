@@ -0,0 +1,56 @@
+package com.example.simplecrud.config;
+
+import com.example.simplecrud.app.user.UserListPageCacheFilter;
+import com.example.simplecrud.common.datasource.ReadYourWritesInterceptor;
+import com.example.simplecrud.domain.service.UserDataVersion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.WebContentInterceptor;
+
+import java.time.Duration;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    // 更新後にプライマリから参照させる期間(レプリケーションの遅延より長くする)
+    @Value("${app.datasource.read-your-writes:5s}")
+    Duration readYourWrites;
+
+    /**
+     * ユーザ一覧画面の描画結果のキャッシュ(app.user.list-page-cache.enabled=trueの場合のみ)
+     */
+    @Bean
+    @ConditionalOnProperty("app.user.list-page-cache.enabled")
+    public UserListPageCacheFilter userListPageCacheFilter(UserDataVersion userDataVersion,
+                                                           @Value("${app.user.list-page-cache.time-to-live:60s}") Duration timeToLive,
+                                                           @Value("${app.user.list-page-cache.maximum-size:64MB}") DataSize maximumSize) {
+        return new UserListPageCacheFilter(userDataVersion, timeToLive, maximumSize.toBytes());
+    }
+
+    @Bean
+    @ConditionalOnProperty("app.user.list-page-cache.enabled")
+    public FilterRegistrationBean<UserListPageCacheFilter> userListPageCacheFilterRegistration(UserListPageCacheFilter filter) {
+        FilterRegistrationBean<UserListPageCacheFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/user/list");
+        return registration;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReadYourWritesInterceptor(readYourWrites))
+                .excludePathPatterns("/app/**", "/actuator/**");
+
+        // 一覧・参照画面はETag/Last-Modifiedで条件付きGETに対応しているため、
+        // ブラウザに保存させたうえで、表示のたびに変更の有無を問い合わせさせる。
+        WebContentInterceptor cacheControlInterceptor = new WebContentInterceptor();
+        cacheControlInterceptor.addCacheMapping(CacheControl.noCache().cachePrivate(), "/user/list", "/user/detail/**");
+        registry.addInterceptor(cacheControlInterceptor);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.simplecrud.domain.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * ユーザ全体の件数と最終更新日時
+ * <p>
+ * 一覧の内容が変わったかどうかの判定(HTTPの条件付きGET)に使う。
+ * 登録・更新されると最終更新日時が、削除されると件数が変わる。
+ * 検索条件ごとに数えると条件に一致する行を全て読むため、全体の値で判定する。(いずれかが変われば全ての一覧を再描画する)
+ * </p>
+ */
+@Data
+public class UserChangeSummary {
+
+    /**
+     * 全件数(DBで数えた正確な値)
+     */
+    private long count;
+
+    /**
+     * 最終更新日時(0件の場合はnull)
+     */
+    private LocalDateTime lastChangedAt;
+
+}
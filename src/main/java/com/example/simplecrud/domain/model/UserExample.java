@@ -148,6 +148,23 @@ public class UserExample {
         oredCriteria.clear();
         orderByClause = null;
         distinct = false;
+        sort = null;
+    }
+
+    // ここから下は手動で追加したもの(MyBatis Generatorの対象外)
+
+    /**
+     * 並び順(orderByClauseより優先する)
+     * orderByClauseはSQLにそのまま埋め込まれるため、利用者が指定する並び順は必ずこちらを使うこと。
+     */
+    protected UserSort sort;
+
+    public void setSort(UserSort sort) {
+        this.sort = sort;
+    }
+
+    public UserSort getSort() {
+        return sort;
     }
 
     /**
@@ -0,0 +1,39 @@
+package com.example.simplecrud.domain.model;
+
+/**
+ * ユーザの並び順
+ * <p>
+ * 並び替えできる列と方向を列挙し、ORDER BY句は定数として保持する。
+ * 利用者の入力をSQLに埋め込まないため安全で、SQLの種類も限られるため、
+ * JDBCドライバのサーバサイドプリペアドステートメント(実行計画)のキャッシュが効く。
+ * 一意でない列は、並び順が一意に決まるようuidを第2キーとする。
+ * 並び順ごとに(列, uid)のインデックス(db/schema.sql)を作成し、インデックスの順に読み込めるようにしている。
+ * 並び順を追加する場合は、インデックスも追加すること。
+ * </p>
+ */
+public enum UserSort {
+
+    UID_ASC("uid"),
+    UID_DESC("uid desc"),
+    NAME_ASC("name, uid"),
+    NAME_DESC("name desc, uid desc"),
+    MAIL_ASC("mail, uid"),
+    MAIL_DESC("mail desc, uid desc"),
+    CREATED_AT_ASC("created_at, uid"),
+    CREATED_AT_DESC("created_at desc, uid desc"),
+    CHANGED_AT_ASC("changed_at, uid"),
+    CHANGED_AT_DESC("changed_at desc, uid desc");
+
+    private final String orderBy;
+
+    UserSort(String orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    /**
+     * ORDER BY句(「order by」を除く)
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+}
@@ -2,11 +2,15 @@ package com.example.simplecrud.domain.repository;
 
 
 import com.example.simplecrud.domain.model.User;
+import com.example.simplecrud.domain.model.UserChangeSummary;
 import com.example.simplecrud.domain.model.UserExample;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.session.RowBounds;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -106,4 +110,187 @@ public interface UserRepository {
      * @mbg.generated
      */
     int updateByPrimaryKey(User record);
+
+    /**
+     * 条件に該当するデータを、DB側で読み飛ばし・件数を制限して取得する。(LIMIT/OFFSET)
+     * DBの種類(databaseId)に応じてLIMIT/OFFSETかOFFSET/FETCHを生成する。
+     * ページの内容が一意に決まるよう、並び順の指定が無い場合はuidの昇順とする。
+     * 一覧表示用のため、パスワードとコメントは取得しない。(nullになる)
+     * OFFSETはDB側で読み飛ばす行を読むため、後ろのページほど遅くなる。大量データはselectPageByExampleを使うこと。
+     * (生成されたselectByExampleWithRowboundsはMyBatisがクライアント側で行を読み飛ばすため、一覧には使わない)
+     *
+     * @param example 検索条件
+     * @param offset  読み飛ばす件数
+     * @param limit   取得件数の上限(nullの場合は上限なし)
+     * @return Userエンティティのリスト(0件の場合は空のリスト)
+     */
+    List<User> selectByExampleWithLimit(@Param("example") UserExample example, @Param("offset") int offset,
+                                        @Param("limit") Integer limit);
+
+    /**
+     * キーセット(シーク)方式で1ページ分のデータを取得する。
+     * uidのインデックスを利用するため、何ページ目であってもコストはページサイズ分で済む。
+     * 一覧表示用のため、パスワードとコメントは取得しない。(nullになる)
+     * beforeUidを指定した場合は降順で返すため、呼び出し側で並び替えること。
+     *
+     * @param example   検索条件
+     * @param afterUid  指定したuidより後ろのデータを取得する(nullの場合は先頭から)
+     * @param beforeUid 指定したuidより前のデータを取得する(nullの場合は条件なし)
+     * @param limit     取得件数の上限
+     * @return Userエンティティのリスト(0件の場合は空のリスト)
+     */
+    List<User> selectPageByExample(@Param("example") UserExample example, @Param("afterUid") String afterUid,
+                                   @Param("beforeUid") String beforeUid, @Param("limit") int limit);
+
+    /**
+     * 検索条件に一致するデータをカーソルで取得する。
+     * 全件をメモリに展開せず、フェッチサイズ(mybatis.configuration.default-fetch-size)単位で読み込む。
+     * PostgreSQLではトランザクション内で呼び出さないとフェッチサイズが効かないため注意すること。
+     *
+     * @param example 検索条件
+     * @return Userエンティティのカーソル(利用後は必ずクローズすること)
+     */
+    Cursor<User> selectCursorByExample(UserExample example);
+
+    /**
+     * 指定したuidのうち、登録済みのuidを取得する。
+     *
+     * @param uids ユーザIDのリスト(空でないこと)
+     * @return 登録済みのユーザIDのリスト
+     */
+    List<String> selectUidsByPrimaryKeys(@Param("uids") Collection<String> uids);
+
+    /**
+     * データを挿入し、挿入後のデータを返す。(INSERT ... ON CONFLICT DO NOTHING RETURNING)
+     * 重複チェックと挿入後の再取得を1回のSQLで行う。
+     *
+     * @param record Userエンティティ
+     * @return 挿入後のUserエンティティ(主キーが重複している場合はnull)
+     */
+    User insertReturning(User record);
+
+    /**
+     * 主キーでデータを更新し、更新後のデータを返す。(UPDATE ... RETURNING)
+     * ステータスと作成日時は更新しない。
+     *
+     * @param record Userエンティティ
+     * @return 更新後のUserエンティティ(該当データが無い場合はnull)
+     */
+    User updateByPrimaryKeyReturning(User record);
+
+    /**
+     * 主キーとバージョン(最終更新日時)が一致するデータを更新し、更新後のデータを返す。(UPDATE ... RETURNING)
+     * 取得後に他で更新されたデータは更新しない。(楽観的排他制御)
+     * ステータスと作成日時は更新しない。
+     *
+     * @param record  Userエンティティ(最終更新日時には新しい値を設定すること)
+     * @param version 取得時の最終更新日時
+     * @return 更新後のUserエンティティ(該当データが無い場合、バージョンが一致しない場合はnull)
+     */
+    User updateByPrimaryKeyAndVersionReturning(@Param("record") User record, @Param("version") LocalDateTime version);
+
+    /**
+     * 主キーでデータを取得し、行をロックする。(SELECT ... FOR UPDATE NOWAIT)
+     * 他のトランザクションがロックしている場合は待たずにエラーになる。(PessimisticLockingFailureException)
+     * ロックはトランザクションの終了まで保持されるため、トランザクション内で呼び出すこと。
+     *
+     * @param uid ユーザID
+     * @return Userエンティティ(該当データが無い場合はnull)
+     */
+    User selectByPrimaryKeyForUpdate(String uid);
+
+    /**
+     * 検索条件とステータスに一致するデータのユーザIDを、件数を制限して取得し、行をロックする。
+     * (SELECT ... FOR UPDATE SKIP LOCKED)
+     * 他のトランザクションがロックしている行は待たずに読み飛ばすため、
+     * 複数のワーカーが同時に実行しても、互いに重ならない行を取得できる。
+     *
+     * @param example 検索条件(nullの場合はステータスのみで絞り込む)
+     * @param status  ステータス
+     * @param limit   取得件数の上限
+     * @return ユーザIDのリスト(uidの昇順)
+     */
+    List<String> selectBatchForUpdateSkipLocked(@Param("example") UserExample example, @Param("status") boolean status,
+                                                @Param("limit") int limit);
+
+    /**
+     * 主キーのリストでステータスと最終更新日時を更新する。
+     *
+     * @param uids      ユーザIDのリスト(空でないこと)
+     * @param status    ステータス
+     * @param changedAt 最終更新日時
+     * @return 更新件数
+     */
+    int updateStatusByPrimaryKeys(@Param("uids") Collection<String> uids, @Param("status") boolean status,
+                                  @Param("changedAt") LocalDateTime changedAt);
+
+    /**
+     * 主キーでステータスと最終更新日時を更新し、更新後のデータを返す。(UPDATE ... RETURNING)
+     * 最終更新日時はDBの精度(マイクロ秒)に丸められるため、バージョンとして使う場合は返却された値を使うこと。
+     *
+     * @param uid       ユーザID
+     * @param status    ステータス
+     * @param changedAt 最終更新日時
+     * @return 更新後のUserエンティティ(該当データが無い場合はnull)
+     */
+    User updateStatusByPrimaryKeyReturning(@Param("uid") String uid, @Param("status") boolean status,
+                                           @Param("changedAt") LocalDateTime changedAt);
+
+    /**
+     * 主キーのデータが存在するかを判定する。(全項目を取得しないため、selectByPrimaryKeyより軽量)
+     *
+     * @param uid ユーザID
+     * @return 存在する場合はtrue
+     */
+    boolean existsByPrimaryKey(String uid);
+
+    /**
+     * 全ユーザIDをカーソルで取得する。(ユーザIDのみを取得する)
+     *
+     * @return ユーザIDのカーソル(利用後は必ずクローズすること)
+     */
+    Cursor<String> selectUidCursor();
+
+    /**
+     * 主キーで最終更新日時のみを取得する。(HTTPの条件付きGETの判定用)
+     *
+     * @param uid ユーザID
+     * @return 最終更新日時(該当データが無い場合はnull)
+     */
+    LocalDateTime selectChangedAtByPrimaryKey(String uid);
+
+    /**
+     * 全データの件数と最終更新日時を取得する。(HTTPの条件付きGETの判定用)
+     * 件数は推定値ではなく数えるため、どのインスタンスで削除されても必ず変わる。
+     * 全行を数えるが、changed_atのインデックス(user_changed_at_uid_idx)のみで求められるため、テーブルは読まない。
+     * (インデックスオンリースキャンが効くのは、VACUUMで可視性マップが更新済みのページのみ)
+     *
+     * @return 件数と最終更新日時(データが無い場合、最終更新日時はnull)
+     */
+    UserChangeSummary selectChangeSummary();
+
+    /**
+     * 統計情報(pg_class.reltuples)から全件数の推定値を取得する。(テーブルをスキャンしない)
+     * ANALYZE(autovacuum)の実行時点の件数のため、最新の件数とは一致しない。
+     *
+     * @return 推定件数(一度もANALYZEされていない場合は負の値)
+     */
+    long selectEstimatedCount();
+
+    /**
+     * 検索条件に一致するデータを取得する実行計画を作成する。(EXPLAIN、SQLは実行しない)
+     * 1行目に実行計画の推定件数(rows=)が含まれる。
+     * @param example 検索条件
+     * @return 実行計画(1行ずつ)
+     */
+    List<String> selectCountPlanByExample(UserExample example);
+
+    /**
+     * 検索条件に一致するデータの件数を、指定した件数を上限として数える。
+     * 上限に達した時点で読み込みを打ち切るため、一致するデータが多くても数える件数は上限までで済む。
+     * @param example 検索条件
+     * @param limit   数える件数の上限
+     * @return 件数(上限を超える場合はlimit)
+     */
+    long countByExampleWithLimit(@Param("example") UserExample example, @Param("limit") long limit);
 }
\ No newline at end of file
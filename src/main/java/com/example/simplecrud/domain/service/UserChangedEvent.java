@@ -0,0 +1,48 @@
+package com.example.simplecrud.domain.service;
+
+import lombok.Data;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * ユーザが登録・更新・削除されたことを表すイベント
+ * UserServiceImplが発行する。受信側は@TransactionalEventListenerでコミット後に処理すること。
+ */
+@Data
+public class UserChangedEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    /**
+     * 変更の種類
+     */
+    private final Type type;
+
+    /**
+     * 変更されたユーザID
+     */
+    private final Collection<String> uids;
+
+    public static UserChangedEvent created(Collection<String> uids) {
+        return new UserChangedEvent(Type.CREATED, uids);
+    }
+
+    public static UserChangedEvent created(String uid) {
+        return created(Collections.singletonList(uid));
+    }
+
+    public static UserChangedEvent updated(Collection<String> uids) {
+        return new UserChangedEvent(Type.UPDATED, uids);
+    }
+
+    public static UserChangedEvent updated(String uid) {
+        return updated(Collections.singletonList(uid));
+    }
+
+    public static UserChangedEvent deleted(String uid) {
+        return new UserChangedEvent(Type.DELETED, Collections.singletonList(uid));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.simplecrud.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * ユーザの件数
+ */
+@Data
+@AllArgsConstructor
+public class UserCount {
+
+    /**
+     * 件数
+     */
+    private long value;
+
+    /**
+     * 推定値の場合はtrue(正確な件数ではない)
+     */
+    private boolean estimated;
+
+}
@@ -0,0 +1,78 @@
+package com.example.simplecrud.domain.service;
+
+import com.example.simplecrud.domain.model.UserExample;
+import com.example.simplecrud.domain.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ユーザの全件数(推定値)
+ * <p>
+ * 全件のcount(*)はテーブル全体をスキャンするため、統計情報(pg_class.reltuples)の推定値を基準とし、
+ * 以後はUserChangedEventで登録・削除の件数を加減算する。
+ * 他のインスタンスでの登録・削除や統計情報とのずれを解消するため、一定間隔で基準値を読み直す。
+ * </p>
+ */
+@Component
+public class UserCounter {
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final long refreshIntervalNanos;
+
+    private volatile boolean loaded;
+
+    private volatile long loadedAt;
+
+    @Inject
+    UserRepository userRepository;
+
+    public UserCounter(@Value("${app.user.count.refresh-interval:10m}") Duration refreshInterval) {
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+    }
+
+    /**
+     * 全件数の推定値を取得する。
+     *
+     * @return 推定件数
+     */
+    public long estimate() {
+        if (!loaded || System.nanoTime() - loadedAt > refreshIntervalNanos) {
+            refresh();
+        }
+        return Math.max(count.get(), 0);
+    }
+
+    private synchronized void refresh() {
+        if (loaded && System.nanoTime() - loadedAt <= refreshIntervalNanos) {
+            return;
+        }
+        long estimated = userRepository.selectEstimatedCount();
+        if (estimated < 0) {
+            // 一度もANALYZEされていない(作成直後の小さいテーブル)場合は正確な件数を数える。
+            estimated = userRepository.countByExample(new UserExample());
+        }
+        count.set(estimated);
+        loadedAt = System.nanoTime();
+        loaded = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+                count.addAndGet(event.getUids().size());
+                break;
+            case DELETED:
+                count.addAndGet(-event.getUids().size());
+                break;
+            default:
+                break;
+        }
+    }
+}
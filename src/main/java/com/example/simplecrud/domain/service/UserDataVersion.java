@@ -0,0 +1,32 @@
+package com.example.simplecrud.domain.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ユーザのデータのバージョン
+ * <p>
+ * 登録・更新・削除(UserChangedEvent)のコミット後に加算する。
+ * 画面の描画結果などをキャッシュする際のキーに含め、データが変わったらキャッシュを使わないようにする。
+ * このインスタンスでの更新のみを反映するため、他のインスタンスでの更新はキャッシュの有効期限まで反映されない。
+ * </p>
+ */
+@Component
+public class UserDataVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * 現在のバージョンを取得する。
+     */
+    public long current() {
+        return version.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        version.incrementAndGet();
+    }
+}
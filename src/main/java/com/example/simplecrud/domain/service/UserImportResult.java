@@ -0,0 +1,80 @@
+package com.example.simplecrud.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ユーザ一括登録の結果
+ */
+@Data
+@NoArgsConstructor
+public class UserImportResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 登録できなかった行を保持する上限
+     * 結果は画面に引き継ぐためセッションに保存される。上限を超えた行は件数のみ数える。
+     */
+    public static final int MAX_ERRORS = 100;
+
+    // 保持するユーザIDの長さの上限(DBの桁数)
+    private static final int MAX_UID_LENGTH = 60;
+
+    /**
+     * 登録できた件数
+     */
+    private int createdCount;
+
+    /**
+     * 登録できなかった件数
+     */
+    private int errorCount;
+
+    /**
+     * 登録できなかった行(先頭からMAX_ERRORS件まで)
+     */
+    private List<RowError> errors = new ArrayList<>();
+
+    void addCreated(int count) {
+        createdCount += count;
+    }
+
+    void addError(int lineNumber, String uid, String message) {
+        errorCount++;
+        if (errors.size() < MAX_ERRORS) {
+            String truncatedUid = uid != null && uid.length() > MAX_UID_LENGTH ? uid.substring(0, MAX_UID_LENGTH) : uid;
+            errors.add(new RowError(lineNumber, truncatedUid, message));
+        }
+    }
+
+    /**
+     * 登録できなかった行の情報
+     */
+    @Data
+    @AllArgsConstructor
+    public static class RowError implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * ファイル上の行番号(1始まり、ヘッダ行・項目内の改行を含めて数えたレコードの開始行)
+         */
+        private int lineNumber;
+
+        /**
+         * ユーザID
+         */
+        private String uid;
+
+        /**
+         * エラーの内容
+         */
+        private String message;
+    }
+}
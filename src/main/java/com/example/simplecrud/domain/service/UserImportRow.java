@@ -0,0 +1,64 @@
+package com.example.simplecrud.domain.service;
+
+import com.example.simplecrud.domain.model.User;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * ユーザ一括登録の入力行
+ * <p>
+ * 入力チェックは呼び出し元(画面と同じUserFormの制約)で行い、違反した行は項目名のみを保持して渡す。
+ * 行番号はファイル上の行(ヘッダ行・項目内の改行を含めて数えた、レコードの開始行)とする。
+ * </p>
+ */
+@Getter
+public class UserImportRow {
+
+    private static final String MSG_USER_INVALID_ITEM = "Invalid item: %s.";
+
+    /**
+     * 行番号(1始まり)
+     */
+    private final int lineNumber;
+
+    /**
+     * 登録するUserエンティティ(入力チェックに違反した場合はnull)
+     */
+    private final User user;
+
+    /**
+     * ユーザID(エラーの記録用)
+     */
+    private final String uid;
+
+    /**
+     * 入力チェックのエラーの内容(違反が無い場合はnull)
+     */
+    private final String error;
+
+    private UserImportRow(int lineNumber, User user, String uid, String error) {
+        this.lineNumber = lineNumber;
+        this.user = user;
+        this.uid = uid;
+        this.error = error;
+    }
+
+    /**
+     * 入力チェックに合格した行
+     */
+    public static UserImportRow valid(int lineNumber, User user) {
+        return new UserImportRow(lineNumber, user, user.getUid(), null);
+    }
+
+    /**
+     * 入力チェックに違反した行(エラーの内容には項目名のみを含め、入力値は含めない)
+     */
+    public static UserImportRow invalid(int lineNumber, String uid, Collection<String> invalidItems) {
+        return new UserImportRow(lineNumber, null, uid, String.format(MSG_USER_INVALID_ITEM, invalidItems.stream()
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(", "))));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.simplecrud.domain.service;
+
+import com.example.simplecrud.domain.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * キーセット方式でページングしたユーザ一覧
+ */
+@Data
+@AllArgsConstructor
+public class UserPage {
+
+    /**
+     * ページ内のUserエンティティ(uidの昇順)
+     */
+    private List<User> content;
+
+    /**
+     * 前のページを取得するためのカーソル(前のページが無い場合はnull)
+     */
+    private String prevUid;
+
+    /**
+     * 次のページを取得するためのカーソル(次のページが無い場合はnull)
+     */
+    private String nextUid;
+
+}
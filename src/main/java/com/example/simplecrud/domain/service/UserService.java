@@ -1,18 +1,27 @@
 package com.example.simplecrud.domain.service;
 
 import com.example.simplecrud.common.exception.DuplicateKeyBusinessException;
+import com.example.simplecrud.common.exception.OptimisticLockingFailureBusinessException;
+import com.example.simplecrud.common.exception.PessimisticLockingFailureBusinessException;
 import com.example.simplecrud.domain.model.User;
+import com.example.simplecrud.domain.model.UserChangeSummary;
 import com.example.simplecrud.domain.model.UserExample;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.terasoluna.gfw.common.exception.BusinessException;
 import org.terasoluna.gfw.common.exception.ResourceNotFoundException;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
 
     /**
      * ユーザを一件取得する
+     * 取得結果はキャッシュされるため、返却されたエンティティを変更しないこと。
+     * キャッシュはインスタンスごとのため、他のインスタンスで更新・削除された場合は、
+     * キャッシュの有効期限(expireAfterWrite)まで更新前のデータを返すことがある。
+     * 更新は楽観的排他制御で検出されるため、最新のデータが必要な場合はreloadByPrimaryKeyを使う。
      *
      * @param uid ユーザID
      * @return Userエンティティ
@@ -21,6 +30,18 @@ public interface UserService {
      */
     User findOneByPrimaryKey(String uid);
 
+    /**
+     * ユーザをキャッシュを使わずに取得し、キャッシュを置き換える。
+     * 楽観的排他制御で競合した場合など、キャッシュの内容が古い可能性がある場合に使う。
+     * (他のインスタンスで更新された場合、このインスタンスのキャッシュは有効期限まで破棄されないため)
+     *
+     * @param uid ユーザID
+     * @return Userエンティティ
+     * @throws ResourceNotFoundException 指定されたユーザIDが存在しない場合
+     * @throws IllegalArgumentException  引数がnull
+     */
+    User reloadByPrimaryKey(String uid);
+
     /**
      * ユーザの一覧を取得する。
      *
@@ -30,6 +51,87 @@ public interface UserService {
      */
     List<User> findAllByExample(UserExample UserExample);
 
+    /**
+     * ユーザの一覧をキーセット方式でページングして取得する。
+     * afterUidとbeforeUidの両方がnullの場合は先頭ページを返す。
+     * 一覧表示用のため、パスワードとコメントは取得しない。(nullになる)
+     *
+     * @param userExample Exampleクラス
+     * @param afterUid    指定したuidより後ろのページを取得する(null可)
+     * @param beforeUid   指定したuidより前のページを取得する(null可)
+     * @param size        1ページの件数
+     * @return ページ(前後ページのカーソルを含む)
+     * @throws IllegalArgumentException 引数がnull, sizeが0以下
+     */
+    UserPage findPage(UserExample userExample, String afterUid, String beforeUid, int size);
+
+    /**
+     * ユーザの一覧をオフセット方式でページングして取得する。
+     * 読み飛ばしはDB側で行う。(LIMIT/OFFSET)
+     * 後ろのページほどDBの負荷が大きくなるため、件数が多い場合はfindPageを使うこと。
+     * 一覧表示用のため、パスワードとコメントは取得しない。(nullになる)
+     *
+     * @param userExample Exampleクラス(並び順の指定が無い場合はuidの昇順)
+     * @param offset      読み飛ばす件数
+     * @param limit       取得件数の上限
+     * @return Userエンティティのリスト(0件の場合は空のリスト)
+     * @throws IllegalArgumentException 引数がnull, offsetが負の値, limitが0以下
+     */
+    List<User> findPageByExample(UserExample userExample, int offset, int limit);
+
+    /**
+     * ユーザの件数を取得する。
+     * 条件を指定しない場合はテーブル全体をスキャンしないよう、推定値を返す。
+     * 条件を指定した場合は、実行計画の推定件数が一定以下(絞り込める条件)の場合のみ正確な件数を数え、
+     * それ以外は実行計画の推定件数を返す。
+     *
+     * @param userExample Exampleクラス
+     * @return 件数(推定値かどうかを含む)
+     * @throws IllegalArgumentException 引数がnull
+     */
+    UserCount countByExample(UserExample userExample);
+
+    /**
+     * ユーザの最終更新日時を取得する。
+     * 最終更新日時のみを取得するため、画面を再描画する必要があるかの判定に使う。(HTTPの条件付きGET)
+     *
+     * @param uid ユーザID
+     * @return 最終更新日時(指定されたユーザIDが存在しない場合はnull)
+     * @throws IllegalArgumentException 引数がnull
+     */
+    LocalDateTime findChangedAtByPrimaryKey(String uid);
+
+    /**
+     * ユーザ全体の件数と最終更新日時を取得する。
+     * 一覧を再描画する必要があるかの判定に使う。(HTTPの条件付きGET)
+     * 件数はDBで数えるため、他のインスタンスでの削除もすぐに反映される。
+     * 検索条件ごとには数えないため、全ての一覧で同じ値になる。
+     *
+     * @return 件数と最終更新日時
+     */
+    UserChangeSummary summarize();
+
+    /**
+     * ユーザを1件ずつ読み込みながら処理する。
+     * 全件をメモリに展開しないため、件数に関わらず一定のメモリで処理できる。
+     *
+     * @param userExample Exampleクラス
+     * @param action      1件ごとに呼び出される処理
+     * @throws IllegalArgumentException 引数がnull
+     */
+    void scanByExample(UserExample userExample, Consumer<User> action);
+
+    /**
+     * ユーザを読み込みながら順に取り出せるIterableを渡して処理する。
+     * 取り出すたびにDBから読み込むため(カーソル)、テンプレートの描画などで必要な分だけ読み込める。
+     * Iterableは処理の中でのみ有効で、1回だけ反復できる。
+     *
+     * @param userExample Exampleクラス
+     * @param action      Iterableを受け取る処理
+     * @throws IllegalArgumentException 引数がnull
+     */
+    void streamByExample(UserExample userExample, Consumer<Iterable<User>> action);
+
     /**
      * Userエンティティを新規に登録する。
      *
@@ -41,16 +143,57 @@ public interface UserService {
      */
     User create(User user);
 
+    /**
+     * Userエンティティを一括で登録する。
+     * 一定件数ごとに重複チェックと登録を行い、登録できなかった行は結果に記録して処理を継続する。
+     * 呼び出し元の入力チェック(画面と同じ制約)に違反した行は、DBに送らずにエラーとして記録する。
+     * 登録できなかった行は先頭から上限件数(UserImportResult.MAX_ERRORS)まで記録し、以降は件数のみ数える。
+     *
+     * @param rows 入力行(ファイル上の行番号と、登録するUserエンティティまたは入力チェックのエラー)
+     * @return 登録結果(登録件数と登録できなかった行)
+     * @throws IllegalArgumentException 引数がnull
+     */
+    UserImportResult createAll(Iterable<UserImportRow> rows);
+
     /**
      * Userエンティティを更新する。
+     * 最終更新日時には取得時の値(バージョン)を設定する。取得後に他で更新されていた場合は更新しない。(楽観的排他制御)
      *
      * @param user 更新するUserエンティティ
      * @return 更新後のUserエンティティ
-     * @throws IllegalArgumentException        引数がnull, 主キーがnull
-     * @throws DataIntegrityViolationException DB更新に失敗した場合
+     * @throws OptimisticLockingFailureBusinessException 取得後に他で更新されていた場合
+     * @throws ResourceNotFoundException                 指定されたユーザIDが存在しない場合
+     * @throws IllegalArgumentException                  引数がnull, 主キーがnull, 最終更新日時(バージョン)がnull
+     * @throws DataIntegrityViolationException           DB更新に失敗した場合
      */
     User update(User user);
 
+    /**
+     * ユーザを無効にする。(ステータスをfalseにする)
+     * 行ロックを待たずに取得し(NOWAIT)、他の処理が更新中の場合は待たずに失敗する。
+     *
+     * @param uid ユーザID
+     * @return 更新後のUserエンティティ
+     * @throws PessimisticLockingFailureBusinessException 他の処理が行をロックしている場合
+     * @throws ResourceNotFoundException                  指定されたユーザIDが存在しない場合
+     * @throws IllegalArgumentException                   引数がnull
+     */
+    User deactivate(String uid);
+
+    /**
+     * 検索条件に一致する有効なユーザを、指定した件数まで無効にする。(夜間バッチ用)
+     * 他の処理がロックしている行は読み飛ばす(SKIP LOCKED)ため、複数のワーカーで同時に実行しても互いに待たず、
+     * 画面からの更新も待たせない。対象が無くなるまで(0が返るまで)繰り返し呼び出すこと。
+     * 1回の呼び出しが1トランザクションとなる。(呼び出し元にトランザクションがある場合はそれに参加する)
+     *
+     * @param userExample Exampleクラス
+     * @param size        1回で無効にする件数の上限
+     * @return 無効にした件数
+     * @throws PessimisticLockingFailureBusinessException ロックの取得に失敗した場合(デッドロックなど)
+     * @throws IllegalArgumentException                   引数がnull, sizeが0以下
+     */
+    int deactivateBatch(UserExample userExample, int size);
+
     /**
      * Userエンティティを削除する。
      *
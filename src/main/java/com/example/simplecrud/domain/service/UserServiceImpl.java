@@ -1,37 +1,118 @@
 package com.example.simplecrud.domain.service;
 
+import com.example.simplecrud.common.datasource.ReplicaRoutingContext;
 import com.example.simplecrud.common.exception.DuplicateKeyBusinessException;
+import com.example.simplecrud.common.exception.OptimisticLockingFailureBusinessException;
+import com.example.simplecrud.common.exception.PessimisticLockingFailureBusinessException;
 import com.example.simplecrud.domain.model.User;
+import com.example.simplecrud.domain.model.UserChangeSummary;
 import com.example.simplecrud.domain.model.UserExample;
 import com.example.simplecrud.domain.repository.UserRepository;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.terasoluna.gfw.common.exception.ResourceNotFoundException;
 import org.terasoluna.gfw.common.message.ResultMessages;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * 更新系はトランザクション内で実行する。(クラスの@Transactional)
+ * 1回のSQLで済む参照系は、トランザクションを開始しない読み取り専用(SUPPORTS, readOnly)とし、
+ * BEGIN/COMMITの往復とコネクションの設定変更を省く。(読み取り専用のためレプリカに振り分けられる)
+ * 呼び出し元にトランザクションがある場合は、そのトランザクションに参加する。
+ */
 @Service
 @Transactional
 public class UserServiceImpl implements UserService {
 
     private final String MSG_USER_NOT_FOUND = "User not found.";
     private final String MSG_USER_ALREADY_REGISTERED = "User already registered.";
+    private final String MSG_USER_DUPLICATED_IN_INPUT = "User is duplicated in the input.";
+    private final String MSG_USER_REJECTED = "User could not be registered.";
+    private final String MSG_USER_ALREADY_CHANGED = "User has been changed by another user.";
+    private final String MSG_USER_LOCKED = "User is locked by another process.";
+
+    // ユーザ参照のキャッシュ名(spring.cache.cache-namesで定義)
+    static final String CACHE_USERS = "users";
+
+    // 一括登録時に1回のSQLで処理する件数
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
+    // 条件を指定した件数を正確に数える上限(実行計画の推定件数がこれを超える場合は推定値とする)
+    private static final long EXACT_COUNT_THRESHOLD = 10_000;
+
+    // 実行計画(EXPLAIN)の1行目に出力される推定件数
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
 
     @Inject
     UserRepository userRepository;
 
+    @Inject
+    PlatformTransactionManager transactionManager;
+
+    @Inject
+    SqlSessionTemplate sqlSessionTemplate;
+
+    @Inject
+    ApplicationEventPublisher eventPublisher;
+
+    @Inject
+    UserCounter userCounter;
+
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    @Cacheable(cacheNames = CACHE_USERS, key = "#uid", condition = "#uid != null")
     public User findOneByPrimaryKey(String uid) {
         if (uid == null) {
             throw new IllegalArgumentException();
         }
-        return findOne(uid);
+        // 結果をキャッシュするため、レプリケーションの遅延で更新前のデータを載せないようプライマリから取得する。
+        return ReplicaRoutingContext.onPrimary(() -> findOne(uid));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    @CachePut(cacheNames = CACHE_USERS, key = "#uid")
+    public User reloadByPrimaryKey(String uid) {
+        if (uid == null) {
+            throw new IllegalArgumentException();
+        }
+        // キャッシュを置き換えるため、レプリカではなくプライマリから取得する。
+        return ReplicaRoutingContext.onPrimary(() -> findOne(uid));
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<User> findAllByExample(UserExample userExample) {
         // 簡易な入力チェック
         if (userExample == null) {
@@ -42,15 +123,137 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public User create(User user) {
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public UserCount countByExample(UserExample userExample) {
         // 簡易な入力チェック
-        if (user == null || user.getUid() == null) {
+        if (userExample == null) {
             throw new IllegalArgumentException();
         }
 
-        // 重複チェック
-        if (userRepository.selectByPrimaryKey(user.getUid()) != null) {
-            throw new DuplicateKeyBusinessException(ResultMessages.error().add(MSG_USER_ALREADY_REGISTERED));
+        boolean filtered = userExample.getOredCriteria().stream().anyMatch(UserExample.Criteria::isValid);
+        if (!filtered) {
+            return new UserCount(userCounter.estimate(), true);
+        }
+
+        // 絞り込まない条件(ステータスのみ、広い日付の範囲など)はテーブルの大半を数えることになるため、
+        // 実行計画の推定件数が上限以下の場合のみ正確に数える。
+        long planned = estimateByPlan(userExample);
+        if (planned > EXACT_COUNT_THRESHOLD) {
+            return new UserCount(planned, true);
+        }
+        // 推定が外れて多かった場合に備え、数える件数は上限までとする。
+        long counted = userRepository.countByExampleWithLimit(userExample, EXACT_COUNT_THRESHOLD + 1);
+        if (counted > EXACT_COUNT_THRESHOLD) {
+            return new UserCount(Math.max(planned, counted), true);
+        }
+        return new UserCount(counted, false);
+    }
+
+    /**
+     * 実行計画から検索条件に一致する件数の推定値を取得する。(SQLは実行しない)
+     */
+    private long estimateByPlan(UserExample userExample) {
+        List<String> plan = userRepository.selectCountPlanByExample(userExample);
+        Matcher matcher = PLAN_ROWS.matcher(plan.isEmpty() ? "" : plan.get(0));
+        // 推定件数が取得できない場合は、数える件数の上限で打ち切って数える。
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public UserPage findPage(UserExample userExample, String afterUid, String beforeUid, int size) {
+        // 簡易な入力チェック
+        if (userExample == null || size <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        // 前後のページの有無を判定するため、1件多く取得する。
+        List<User> users = new ArrayList<>(
+                userRepository.selectPageByExample(userExample, afterUid, beforeUid, size + 1));
+        boolean hasMore = users.size() > size;
+        if (hasMore) {
+            users.remove(size);
+        }
+
+        if (users.isEmpty()) {
+            return new UserPage(users, null, null);
+        }
+
+        String firstUid = users.get(0).getUid();
+        String lastUid = users.get(users.size() - 1).getUid();
+        if (beforeUid != null) {
+            // 降順で取得しているため、昇順に並べ替える。
+            Collections.reverse(users);
+            return new UserPage(users, hasMore ? lastUid : null, firstUid);
+        }
+        return new UserPage(users, afterUid != null ? firstUid : null, hasMore ? lastUid : null);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<User> findPageByExample(UserExample userExample, int offset, int limit) {
+        // 簡易な入力チェック
+        if (userExample == null || offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        return userRepository.selectByExampleWithLimit(userExample, offset, limit);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public LocalDateTime findChangedAtByPrimaryKey(String uid) {
+        // 簡易な入力チェック
+        if (uid == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return userRepository.selectChangedAtByPrimaryKey(uid);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public UserChangeSummary summarize() {
+        return userRepository.selectChangeSummary();
+    }
+
+    // PostgreSQLでカーソルのフェッチサイズを有効にするため、トランザクションを開始する。
+    @Override
+    @Transactional(readOnly = true)
+    public void scanByExample(UserExample userExample, Consumer<User> action) {
+        // 簡易な入力チェック
+        if (userExample == null || action == null) {
+            throw new IllegalArgumentException();
+        }
+
+        try (Cursor<User> cursor = userRepository.selectCursorByExample(userExample)) {
+            cursor.forEach(action);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamByExample(UserExample userExample, Consumer<Iterable<User>> action) {
+        // 簡易な入力チェック
+        if (userExample == null || action == null) {
+            throw new IllegalArgumentException();
+        }
+
+        try (Cursor<User> cursor = userRepository.selectCursorByExample(userExample)) {
+            action.accept(cursor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    @CacheEvict(cacheNames = CACHE_USERS, key = "#user.uid")
+    public User create(User user) {
+        // 簡易な入力チェック
+        if (user == null || user.getUid() == null) {
+            throw new IllegalArgumentException();
         }
 
         user.setStatus(true);
@@ -58,29 +261,216 @@ public class UserServiceImpl implements UserService {
         user.setCreatedAt(now);
         user.setChangedAt(now);
 
-        userRepository.insert(user);
-        return findOne(user.getUid());
+        // 重複チェック・登録・登録後の取得を1回のSQLで行う。(重複している場合はnullが返る)
+        User created = userRepository.insertReturning(user);
+        if (created == null) {
+            throw new DuplicateKeyBusinessException(ResultMessages.error().add(MSG_USER_ALREADY_REGISTERED));
+        }
+
+        eventPublisher.publishEvent(UserChangedEvent.created(created.getUid()));
+        return created;
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public UserImportResult createAll(Iterable<UserImportRow> rows) {
+        // 簡易な入力チェック
+        if (rows == null) {
+            throw new IllegalArgumentException();
+        }
+
+        // チャンク単位でコミット(呼び出し元にトランザクションがある場合はセーブポイント)する。
+        TransactionTemplate chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+
+        UserImportResult result = new UserImportResult();
+        Set<String> inputUids = new HashSet<>();
+        List<UserImportRow> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        for (UserImportRow row : rows) {
+            // DBにアクセスせずに検査できるものは、メモリ上で検査する。
+            // 桁数超過などをDBのエラーで検出すると、チャンク全体が1件ずつの登録になるため、ここで除外する。
+            if (row.getError() != null) {
+                result.addError(row.getLineNumber(), row.getUid(), row.getError());
+                continue;
+            }
+            if (!inputUids.add(row.getUid())) {
+                result.addError(row.getLineNumber(), row.getUid(), MSG_USER_DUPLICATED_IN_INPUT);
+                continue;
+            }
+
+            chunk.add(row);
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                importChunk(chunk, chunkTransaction, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, chunkTransaction, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * 1チャンク分のUserエンティティを登録する。
+     * 重複チェックはチャンク単位で1回のSQLで行い、登録はJDBCのバッチで行う。
+     * 一括登録に失敗した場合(同時に同じIDが登録された場合など)は、1件ずつ登録し直して失敗した行を記録する。
+     */
+    private void importChunk(List<UserImportRow> chunk, TransactionTemplate chunkTransaction, UserImportResult result) {
+        List<String> uids = new ArrayList<>(chunk.size());
+        for (UserImportRow row : chunk) {
+            uids.add(row.getUid());
+        }
+        Set<String> registeredUids = new HashSet<>(
+                chunkTransaction.execute(status -> userRepository.selectUidsByPrimaryKeys(uids)));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<UserImportRow> targets = new ArrayList<>(chunk.size());
+        List<User> records = new ArrayList<>(chunk.size());
+        for (UserImportRow row : chunk) {
+            if (registeredUids.contains(row.getUid())) {
+                result.addError(row.getLineNumber(), row.getUid(), MSG_USER_ALREADY_REGISTERED);
+                continue;
+            }
+            row.getUser().setStatus(true);
+            row.getUser().setCreatedAt(now);
+            row.getUser().setChangedAt(now);
+            targets.add(row);
+            records.add(row.getUser());
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+
+        List<String> createdUids = new ArrayList<>(records.size());
+        try {
+            result.addCreated(chunkTransaction.execute(status -> insertBatch(records)));
+            records.forEach(user -> createdUids.add(user.getUid()));
+        } catch (DataIntegrityViolationException e) {
+            for (UserImportRow row : targets) {
+                try {
+                    result.addCreated(chunkTransaction.execute(status -> userRepository.insert(row.getUser())));
+                    createdUids.add(row.getUid());
+                } catch (DuplicateKeyException ex) {
+                    result.addError(row.getLineNumber(), row.getUid(), MSG_USER_ALREADY_REGISTERED);
+                } catch (DataIntegrityViolationException ex) {
+                    // DBのエラーメッセージは画面に出さない。
+                    result.addError(row.getLineNumber(), row.getUid(), MSG_USER_REJECTED);
+                }
+            }
+        }
+
+        if (!createdUids.isEmpty()) {
+            eventPublisher.publishEvent(UserChangedEvent.created(createdUids));
+        }
+    }
+
+    /**
+     * JDBCのバッチでUserエンティティを挿入する。(実行中のトランザクションのコネクションを使う)
+     * pgjdbcのreWriteBatchedInsertsにより、複数行VALUESのINSERT文に書き換えて送信される。
+     * Spring管理のSqlSession(mybatis.executor-type)とはExecutorTypeが異なるため、
+     * トランザクションに登録せずにBATCHのSqlSessionを開く。
+     */
+    private int insertBatch(List<User> records) {
+        try (SqlSession batchSession = sqlSessionTemplate.getSqlSessionFactory().openSession(ExecutorType.BATCH)) {
+            UserRepository batchRepository = batchSession.getMapper(UserRepository.class);
+            records.forEach(batchRepository::insert);
+
+            int count = 0;
+            for (BatchResult batchResult : batchSession.flushStatements()) {
+                for (int updateCount : batchResult.getUpdateCounts()) {
+                    // 書き換えられたバッチは件数が返らない(SUCCESS_NO_INFO)ため、1件として数える。
+                    count += updateCount == Statement.SUCCESS_NO_INFO ? 1 : updateCount;
+                }
+            }
+            return count;
+        } catch (PersistenceException e) {
+            // Spring管理外のSqlSessionのため、DataAccessExceptionへの変換を自分で行う。
+            DataAccessException translated = sqlSessionTemplate.getPersistenceExceptionTranslator().translateExceptionIfPossible(e);
+            throw translated != null ? translated : e;
+        }
+    }
+
+    @Override
+    @CacheEvict(cacheNames = CACHE_USERS, key = "#user.uid")
     public User update(User user) {
         // 簡易な入力チェック
-        if (user == null || user.getUid() == null) {
+        // バージョンの無い更新は他の利用者の更新を上書きするため受け付けない。
+        if (user == null || user.getUid() == null || user.getChangedAt() == null) {
             throw new IllegalArgumentException();
         }
 
-        user.setStatus(findOne(user.getUid()).getStatus());
+        // 渡された最終更新日時はバージョンとして扱い、新しい最終更新日時で置き換える。
+        LocalDateTime version = user.getChangedAt();
         user.setChangedAt(LocalDateTime.now());
 
-        int count = userRepository.updateByPrimaryKey(user);
-        if (count == 0) {
+        // 更新と更新後の取得を1回のSQLで行う。(ステータスは更新しない)
+        // バージョンが一致する場合のみ更新する。(行をロックして待たせず、競合した側を失敗させる)
+        User updated = userRepository.updateByPrimaryKeyAndVersionReturning(user, version);
+        // 更新できなかった理由が、削除済みではなく他で更新済みの場合
+        if (updated == null && userRepository.existsByPrimaryKey(user.getUid())) {
+            throw new OptimisticLockingFailureBusinessException(ResultMessages.error().add(MSG_USER_ALREADY_CHANGED));
+        }
+        if (updated == null) {
             throw new ResourceNotFoundException(MSG_USER_NOT_FOUND);
         }
 
-        return findOne(user.getUid());
+        eventPublisher.publishEvent(UserChangedEvent.updated(updated.getUid()));
+        return updated;
     }
 
     @Override
+    @CacheEvict(cacheNames = CACHE_USERS, key = "#uid")
+    public User deactivate(String uid) {
+        // 簡易な入力チェック
+        if (uid == null) {
+            throw new IllegalArgumentException();
+        }
+
+        try {
+            // 行ロックを待たずに取得する。(他の処理の更新が終わるまで画面やバッチを待たせない)
+            User user = userRepository.selectByPrimaryKeyForUpdate(uid);
+            if (user == null) {
+                throw new ResourceNotFoundException(MSG_USER_NOT_FOUND);
+            }
+
+            // 最終更新日時は次の更新のバージョンになるため、DBに保存された(丸められた)値を返す。
+            User updated = userRepository.updateStatusByPrimaryKeyReturning(uid, false, LocalDateTime.now());
+
+            eventPublisher.publishEvent(UserChangedEvent.updated(uid));
+            return updated;
+        } catch (PessimisticLockingFailureException e) {
+            throw new PessimisticLockingFailureBusinessException(ResultMessages.error().add(MSG_USER_LOCKED));
+        }
+    }
+
+    // 対象のユーザIDはSQLを実行するまで分からないため、キャッシュは全件クリアする。
+    @Override
+    @CacheEvict(cacheNames = CACHE_USERS, allEntries = true)
+    public int deactivateBatch(UserExample userExample, int size) {
+        // 簡易な入力チェック
+        if (userExample == null || size <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        try {
+            // 他のワーカーや画面の処理がロックしている行は読み飛ばし、ロックできた行だけを更新する。
+            List<String> uids = userRepository.selectBatchForUpdateSkipLocked(userExample, true, size);
+            if (uids.isEmpty()) {
+                return 0;
+            }
+
+            int count = userRepository.updateStatusByPrimaryKeys(uids, false, LocalDateTime.now());
+
+            eventPublisher.publishEvent(UserChangedEvent.updated(uids));
+            return count;
+        } catch (PessimisticLockingFailureException e) {
+            throw new PessimisticLockingFailureBusinessException(ResultMessages.error().add(MSG_USER_LOCKED));
+        }
+    }
+
+    @Override
+    @CacheEvict(cacheNames = CACHE_USERS, key = "#uid")
     public void delete(String uid) {
         // 簡易な入力チェック
         if (uid == null) {
@@ -92,6 +482,8 @@ public class UserServiceImpl implements UserService {
             throw new ResourceNotFoundException(MSG_USER_NOT_FOUND);
         }
 
+        eventPublisher.publishEvent(UserChangedEvent.deleted(uid));
+
     }
 
     /**
@@ -0,0 +1,115 @@
+package com.example.simplecrud.domain.service;
+
+import com.example.simplecrud.common.util.CountingBloomFilter;
+import com.example.simplecrud.domain.repository.UserRepository;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 登録済みのユーザIDのBloomフィルタ
+ * <p>
+ * 登録済みかどうかの事前判定に使う。falseの場合は確実に未登録なので、DBへの問い合わせを省略できる。
+ * 起動後に全ユーザIDを読み込み(ウォームアップ)、以後はUserChangedEventで登録・削除を反映する。
+ * ウォームアップ完了前や、他のインスタンスで登録されたユーザIDは反映されないため、
+ * 最終的な重複チェックはUserService.createで行うこと。
+ * </p>
+ */
+@Component
+public class UserUidFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserUidFilter.class);
+
+    private final CountingBloomFilter filter;
+
+    private volatile boolean ready;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    PlatformTransactionManager transactionManager;
+
+    @Inject
+    @Qualifier("applicationTaskExecutor")
+    TaskExecutor taskExecutor;
+
+    public UserUidFilter(@Value("${app.user.uid-filter.expected-insertions:2000000}") long expectedInsertions,
+                         @Value("${app.user.uid-filter.fpp:0.01}") double fpp) {
+        this.filter = new CountingBloomFilter(expectedInsertions, fpp);
+    }
+
+    /**
+     * 登録済みの可能性があるかを判定する。
+     *
+     * @param uid ユーザID
+     * @return 登録済みの可能性がある場合はtrue(ウォームアップ完了前は常にtrue)
+     */
+    public boolean mightContain(String uid) {
+        return !ready || filter.mightContain(uid);
+    }
+
+    /**
+     * 起動の完了を待たせないよう、ウォームアップは別スレッドで行う。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        taskExecutor.execute(this::load);
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        try {
+            // PostgreSQLでフェッチサイズを有効にするため、トランザクション内でカーソルを読む。
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            long count = transactionTemplate.execute(status -> {
+                long loaded = 0;
+                try (Cursor<String> uids = userRepository.selectUidCursor()) {
+                    for (String uid : uids) {
+                        filter.put(uid);
+                        loaded++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return loaded;
+            });
+            ready = true;
+            logger.info("User uid filter loaded. (count={}, elapsed={}ms)", count, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            // 読み込めなかった場合は、常にDBに問い合わせる。
+            logger.warn("Failed to load user uid filter.", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+                event.getUids().forEach(filter::put);
+                break;
+            case DELETED:
+                // ウォームアップ前の削除は反映しない。(未登録の値を減算すると誤判定の見逃しになるため)
+                if (ready) {
+                    event.getUids().forEach(filter::remove);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+-- simplecrudのテーブル定義(PostgreSQL)
+-- アプリケーションからは自動実行しない。DB構築時やベンチマークで利用する。
+
+-- ユーザ
+create table if not exists public.user (
+    uid        varchar(60)   not null,
+    name       varchar(60)   not null,
+    pass       varchar(255)  not null,
+    mail       varchar(255)  not null,
+    status     boolean       not null,
+    created_at timestamp     not null,
+    changed_at timestamp     not null,
+    comment    varchar(1000),
+    constraint user_pkey primary key (uid)
+);
+
+-- 一覧画面の検索条件用のインデックス
+-- ロケールがCでないDBでは主キー(btree)でLIKEの前方一致を検索できないため、varchar_pattern_opsで別途作成する。
+create index if not exists user_uid_pattern_idx on public.user (uid varchar_pattern_ops);
+create index if not exists user_mail_pattern_idx on public.user (mail varchar_pattern_ops);
+
+-- 一覧の並び順(UserSort)用のインデックス
+-- 並び順が一意に決まるようuidを第2キーとしているため、(列, uid)の順で作成する。(降順はインデックスを逆順に読む)
+-- ORDER BY ... LIMITを上位N件の並び替え(テーブル全体の読み込み)ではなく、インデックスの先頭からの読み込みにする。
+-- 作成日時・最終更新日時の範囲の検索にも使う。(単一列のインデックスは不要)
+-- 氏名のGIN(トライグラム)、メールのvarchar_pattern_opsのインデックスは並び替えに使えないため、別途作成する。
+create index if not exists user_name_uid_idx on public.user (name, uid);
+create index if not exists user_mail_uid_idx on public.user (mail, uid);
+create index if not exists user_created_at_uid_idx on public.user (created_at, uid);
+create index if not exists user_changed_at_uid_idx on public.user (changed_at, uid);
+
+-- 氏名の部分一致(LIKE '%...%')はトライグラムのGINインデックスで検索する。(3文字以上の場合に有効)
+create extension if not exists pg_trgm;
+create index if not exists user_name_trgm_idx on public.user using gin (name gin_trgm_ops);
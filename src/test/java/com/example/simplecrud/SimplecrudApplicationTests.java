@@ -1,8 +1,11 @@
 package com.example.simplecrud;
 
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 class SimplecrudApplicationTests {
 
@@ -10,4 +13,12 @@ class SimplecrudApplicationTests {
 	void contextLoads() {
 	}
 
+	@Test
+	@DisplayName("[正]startupプロファイルを指定して起動した場合のみ、起動処理のステップを記録する")
+	void isStartupProfileActive() {
+		assertThat(SimplecrudApplication.isStartupProfileActive(new String[]{"--spring.profiles.active=prod,startup"})).isTrue();
+		assertThat(SimplecrudApplication.isStartupProfileActive(new String[]{"--spring.profiles.active=prod"})).isFalse();
+		assertThat(SimplecrudApplication.isStartupProfileActive(new String[0])).isFalse();
+	}
+
 }
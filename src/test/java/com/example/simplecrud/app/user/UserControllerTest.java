@@ -3,21 +3,33 @@ package com.example.simplecrud.app.user;
 import com.example.simplecrud.domain.model.User;
 import com.example.simplecrud.domain.model.UserExample;
 import com.example.simplecrud.domain.repository.UserRepository;
+import com.example.simplecrud.domain.service.UserImportResult;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 
 import static org.apache.commons.lang3.StringUtils.rightPad;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -139,6 +151,77 @@ class UserControllerTest {
                     .andExpect(model().hasNoErrors());
         }
 
+        @Test
+        @DisplayName("[正]カーソルを指定すると次のページが表示される(GET)")
+        void test002() throws Exception {
+            insertIntoTable(createEntity("1"), createEntity("2"));
+
+            mockMvc.perform(get("/user/list").param("after", createEntity("1").getUid()))
+                    .andExpect(status().isOk()) //200
+                    .andExpect(view().name("user/list"))
+                    .andExpect(model().attributeExists("page"))
+                    .andExpect(model().hasNoErrors());
+        }
+
+        @Test
+        @DisplayName("[正]検索条件で絞り込まれ、ページ移動のリンクに検索条件が引き継がれる(GET)")
+        void test003() throws Exception {
+            for (int i = 0; i < 25; i++) {
+                insertIntoTable(createEntity("1" + String.format("%02d", i)));
+            }
+            insertIntoTable(createEntity("2"));
+
+            mockMvc.perform(get("/user/list")
+                    .param("uid", "1")
+                    .param("createdFrom", "2021-04-01")
+                    .param("createdTo", "2021-04-01"))
+                    .andExpect(status().isOk()) //200
+                    .andExpect(view().name("user/list"))
+                    .andExpect(model().attribute("userList", hasSize(20)))
+                    .andExpect(model().attribute("nextUrl", containsString("uid=1&createdFrom=2021-04-01&createdTo=2021-04-01&after=")))
+                    .andExpect(model().hasNoErrors());
+        }
+
+        @Test
+        @DisplayName("[正]uid以外で並び替えるとページ番号で移動する(GET)")
+        void test004() throws Exception {
+            for (int i = 0; i < 25; i++) {
+                insertIntoTable(createEntity("1" + String.format("%02d", i)));
+            }
+
+            mockMvc.perform(get("/user/list")
+                    .param("sort", "NAME_DESC")
+                    .param("page", "2"))
+                    .andExpect(status().isOk()) //200
+                    .andExpect(view().name("user/list"))
+                    .andExpect(model().attribute("userList", hasSize(5)))
+                    .andExpect(model().attribute("prevUrl", containsString("sort=NAME_DESC&page=1")))
+                    .andExpect(model().attributeDoesNotExist("nextUrl"))
+                    .andExpect(model().hasNoErrors());
+        }
+
+        @Test
+        @DisplayName("[正]一覧のETagが一致する場合は304を返し、検索条件が異なる場合、データが削除された場合は再描画する")
+        void test005() throws Exception {
+            insertIntoTable(createEntity("1"), createEntity("2"));
+
+            String eTag = mockMvc.perform(get("/user/list"))
+                    .andExpect(status().isOk()) //200
+                    .andReturn().getResponse().getHeader("ETag");
+            assertThat(eTag).startsWith("W/");
+
+            mockMvc.perform(get("/user/list").header("If-None-Match", eTag))
+                    .andExpect(status().isNotModified()); //304
+
+            mockMvc.perform(get("/user/list").param("name", "name1").header("If-None-Match", eTag))
+                    .andExpect(status().isOk()); //200
+
+            // 他のインスタンスでの削除(このインスタンスにはイベントが通知されない)
+            userRepository.deleteByPrimaryKey(createEntity("2").getUid());
+            mockMvc.perform(get("/user/list").header("If-None-Match", eTag))
+                    .andExpect(status().isOk()); //200
+        }
+
         @Test
         @DisplayName("[異]POSTはエラー")
         void test101() throws Exception {
@@ -149,6 +232,50 @@ class UserControllerTest {
         }
     }
 
+    @Nested
+    class listAll {
+
+        @Test
+        @DisplayName("[正]検索条件に一致する全件が描画しながら出力される")
+        void test001() throws Exception {
+            insertIntoTable(createEntity("1"), createEntity("2"));
+
+            MvcResult result = mockMvc.perform(get("/user/list/all").param("uid", "1"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk()) //200
+                    .andExpect(content().contentTypeCompatibleWith("text/html"))
+                    .andExpect(content().string(containsString(createEntity("1").getUid())))
+                    .andExpect(content().string(not(containsString(createEntity("2").getUid()))));
+        }
+    }
+
+    @Nested
+    class export {
+
+        @Test
+        @DisplayName("[正]CSVがストリーミングで出力される")
+        void test001() throws Exception {
+            MvcResult result = mockMvc.perform(get("/user/export").param("format", "csv"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk()) //200
+                    .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                    .andExpect(content().string(startsWith("uid,name,mail,status,created_at,changed_at,comment\r\n")));
+        }
+
+        @Test
+        @DisplayName("[異]未対応の形式を指定するとエラー")
+        void test101() throws Exception {
+            mockMvc.perform(get("/user/export").param("format", "xlsx"))
+                    .andExpect(status().isBadRequest()); //400
+        }
+    }
+
     @Nested
     class createForm {
         @Test
@@ -250,6 +377,61 @@ class UserControllerTest {
         }
     }
 
+    @Nested
+    class importUsers {
+        @Test
+        @DisplayName("[正]CSVファイルから一括登録が行われ、完了画面にリダイレクトされる")
+        void test001() throws Exception {
+            MockMultipartFile file = new MockMultipartFile("file", "users.csv", "text/csv",
+                    ("uid,name,pass,mail,comment\r\n"
+                            + "u1,name1,pass1,u1@stnet.co.jp,\"comment, 1\"\r\n"
+                            + "u2,name2,pass2,u2@stnet.co.jp,\r\n").getBytes(StandardCharsets.UTF_8));
+
+            // 実行
+            mockMvc.perform(multipart("/user/import").file(file))
+                    // 検証
+                    .andExpect(status().isFound()) //302
+                    .andExpect(view().name("redirect:/user/import?complete"))
+                    .andExpect(flash().attribute("importResult", hasProperty("createdCount", is(2))));
+
+            assertThat(userRepository.selectByPrimaryKey("u1").getComment()).isEqualTo("comment, 1");
+        }
+
+        @Test
+        @DisplayName("[正]画面の入力チェックに違反する行は、ファイル上の行番号とともにエラーとして記録される")
+        void test002() throws Exception {
+            MockMultipartFile file = new MockMultipartFile("file", "users.csv", "text/csv",
+                    ("uid,name,pass,mail,comment\r\n"
+                            + "u1,name1,pass1,u1@stnet.co.jp,\"comment\r\n1\"\r\n"
+                            + rightPad("u3", 21, "0") + ",name3,pass3,invalid,\r\n"
+                            + "u2,name2,pass2,u2@stnet.co.jp,\r\n").getBytes(StandardCharsets.UTF_8));
+
+            // 実行
+            MvcResult mvcResult = mockMvc.perform(multipart("/user/import").file(file))
+                    // 検証
+                    .andExpect(status().isFound()) //302
+                    .andReturn();
+
+            UserImportResult actual = (UserImportResult) mvcResult.getFlashMap().get("importResult");
+            assertThat(actual.getCreatedCount()).isEqualTo(2);
+            assertThat(actual.getErrors()).extracting(UserImportResult.RowError::getLineNumber,
+                    UserImportResult.RowError::getMessage)
+                    .containsExactly(tuple(4, "Invalid item: mail, uid."));
+        }
+
+        @Test
+        @DisplayName("[異]ファイルが空の場合は一括登録画面に戻る")
+        void test101() throws Exception {
+            MockMultipartFile file = new MockMultipartFile("file", "users.csv", "text/csv", new byte[0]);
+
+            // 実行
+            mockMvc.perform(multipart("/user/import").file(file))
+                    // 検証
+                    .andExpect(status().isOk()) //200
+                    .andExpect(view().name("user/importForm"));
+        }
+    }
+
     @Nested
     class updateForm {
     }
@@ -264,6 +446,43 @@ class UserControllerTest {
 
     @Nested
     class update {
+        @Test
+        @DisplayName("[正]バージョンが一致する場合は更新処理が行われ、完了画面にリダイレクトされる")
+        void test001() throws Exception {
+            User user = createEntity("1");
+            user.setUid("1");
+            insertIntoTable(user);
+            MultiValueMap<String, String> postData = makePostData("1");
+            postData.add("version", "2021-04-01T12:34:56");
+
+            // 実行
+            mockMvc.perform(post("/user/update").params(postData))
+                    // 検証
+                    .andExpect(status().isFound()) //302
+                    .andExpect(view().name("redirect:/user/update?complete"));
+
+            assertThat(userRepository.selectByPrimaryKey("1").getName()).isEqualTo("name1");
+        }
+
+        @Test
+        @DisplayName("[異]編集中に他で更新された場合は、最新の内容で編集画面に戻る")
+        void test101() throws Exception {
+            User user = createEntity("1");
+            user.setUid("1");
+            insertIntoTable(user);
+            MultiValueMap<String, String> postData = makePostData("1");
+            postData.add("version", "2021-04-01T00:00:00");
+
+            // 実行
+            mockMvc.perform(post("/user/update").params(postData))
+                    // 検証
+                    .andExpect(status().isOk()) //200
+                    .andExpect(view().name("user/updateForm"))
+                    .andExpect(model().attributeExists("resultMessages"))
+                    .andExpect(model().attribute("userForm", hasProperty("version", is(user.getChangedAt()))));
+
+            assertThat(userRepository.selectByPrimaryKey("1").getName()).isEqualTo(user.getName());
+        }
     }
 
     @Nested
@@ -280,5 +499,31 @@ class UserControllerTest {
 
     @Nested
     class detail {
+
+        @Test
+        @DisplayName("[正]ETagが一致する場合は304を返し、更新された場合は再描画する")
+        void test001() throws Exception {
+            User user = createEntity("1");
+            insertIntoTable(user);
+
+            String eTag = mockMvc.perform(get("/user/detail/" + user.getUid()))
+                    .andExpect(status().isOk()) //200
+                    .andExpect(header().exists("ETag"))
+                    .andExpect(header().exists("Last-Modified"))
+                    .andReturn().getResponse().getHeader("ETag");
+
+            mockMvc.perform(get("/user/detail/" + user.getUid()).header("If-None-Match", eTag))
+                    .andExpect(status().isNotModified()); //304
+
+            // キャッシュを破棄せずに更新する。(他のインスタンスでの更新)
+            user.setName("changed");
+            user.setChangedAt(user.getChangedAt().plusSeconds(1));
+            userRepository.updateByPrimaryKey(user);
+            mockMvc.perform(get("/user/detail/" + user.getUid()).header("If-None-Match", eTag))
+                    .andExpect(status().isOk()) //200
+                    .andExpect(header().string("ETag", not(eTag)))
+                    .andExpect(model().attribute("user", hasProperty("name", is("changed"))));
+        }
     }
+
 }
\ No newline at end of file
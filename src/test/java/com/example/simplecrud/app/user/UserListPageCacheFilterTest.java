@@ -0,0 +1,121 @@
+package com.example.simplecrud.app.user;
+
+import com.example.simplecrud.domain.service.UserChangedEvent;
+import com.example.simplecrud.domain.service.UserDataVersion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserListPageCacheFilterTest {
+
+    UserDataVersion dataVersion = new UserDataVersion();
+
+    UserListPageCacheFilter target = new UserListPageCacheFilter(dataVersion, Duration.ofMinutes(1), 1024 * 1024);
+
+    // 描画した回数
+    AtomicInteger rendered = new AtomicInteger();
+
+    /**
+     * 一覧画面のリクエストを実行する。(描画のたびに異なる内容を返す)
+     */
+    private MockHttpServletResponse perform(String queryString, Cookie... cookies) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user/list");
+        request.setQueryString(queryString);
+        if (cookies.length > 0) {
+            request.setCookies(cookies);
+        }
+        return perform(request);
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.setContentType("text/html;charset=UTF-8");
+                resp.setHeader("ETag", "W/\"list\"");
+                resp.getWriter().write("<p>" + rendered.incrementAndGet() + "</p>");
+            }
+        };
+        target.doFilter(request, response, new MockFilterChain(servlet));
+        return response;
+    }
+
+    @Test
+    @DisplayName("[正]同じ条件の2回目はキャッシュから返す")
+    void test001() throws Exception {
+        MockHttpServletResponse first = perform("name=a");
+        MockHttpServletResponse second = perform("name=a");
+
+        assertThat(second.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(second.getContentType()).isEqualTo("text/html;charset=UTF-8");
+        assertThat(rendered).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("[正]条件が異なる場合、データが更新された場合は再描画する")
+    void test002() throws Exception {
+        perform("name=a");
+        perform("name=b");
+        dataVersion.onUserChanged(UserChangedEvent.deleted("1"));
+        MockHttpServletResponse actual = perform("name=a");
+
+        assertThat(actual.getContentAsString()).isEqualTo("<p>3</p>");
+        assertThat(rendered).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("[正]更新直後の利用者はキャッシュを使わない")
+    void test003() throws Exception {
+        perform("name=a");
+        MockHttpServletResponse actual = perform("name=a", new Cookie("PRIMARY_READ", "1"));
+
+        assertThat(actual.getContentAsString()).isEqualTo("<p>2</p>");
+    }
+
+    @Test
+    @DisplayName("[正]キャッシュ済みのETagと一致する場合は304を返す")
+    void test004() throws Exception {
+        perform("name=a");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user/list");
+        request.setQueryString("name=a");
+        request.addHeader("If-None-Match", "W/\"list\"");
+        MockHttpServletResponse actual = perform(request);
+
+        assertThat(actual.getStatus()).isEqualTo(304);
+        assertThat(actual.getContentAsString()).isEmpty();
+        assertThat(rendered).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("[正]ロケール、ログインユーザが異なる場合は共有せずに再描画する")
+    void test005() throws Exception {
+        perform("name=a");
+
+        MockHttpServletRequest japanese = new MockHttpServletRequest("GET", "/user/list");
+        japanese.setQueryString("name=a");
+        japanese.addPreferredLocale(Locale.JAPANESE);
+        perform(japanese);
+
+        MockHttpServletRequest other = new MockHttpServletRequest("GET", "/user/list");
+        other.setQueryString("name=a");
+        other.setRemoteUser("other");
+        MockHttpServletResponse actual = perform(other);
+
+        assertThat(actual.getContentAsString()).isEqualTo("<p>3</p>");
+        assertThat(rendered).hasValue(3);
+    }
+}
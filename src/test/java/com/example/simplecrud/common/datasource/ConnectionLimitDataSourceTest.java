@@ -0,0 +1,77 @@
+package com.example.simplecrud.common.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionLimitDataSourceTest {
+
+    DataSource dataSource = mock(DataSource.class);
+
+    Connection connection = mock(Connection.class);
+
+    ConnectionLimitDataSource target = new ConnectionLimitDataSource(dataSource, 1, Duration.ofMillis(100));
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+    }
+
+    @Test
+    @DisplayName("[正]コネクションをcloseすると、次のコネクションを取得できる")
+    void test001() throws Exception {
+        Connection first = target.getConnection();
+        first.close();
+
+        Connection second = target.getConnection();
+
+        assertThat(second).isNotNull();
+        verify(connection).close();
+    }
+
+    @Test
+    @DisplayName("[正]同じコネクションを複数回closeしても、許可は1回分のみ返す")
+    void test002() throws Exception {
+        Connection first = target.getConnection();
+        first.close();
+        first.close();
+
+        target.getConnection();
+
+        assertThatThrownBy(() -> target.getConnection())
+                .isInstanceOf(SQLTransientConnectionException.class);
+    }
+
+    @Test
+    @DisplayName("[異]同時に取得できる数を超えると、待ち時間の上限でSQLTransientConnectionExceptionを投げる")
+    void test101() throws Exception {
+        target.getConnection();
+
+        assertThatThrownBy(() -> target.getConnection())
+                .isInstanceOf(SQLTransientConnectionException.class);
+    }
+
+    @Test
+    @DisplayName("[異]プールからの取得に失敗した場合は、許可を返す")
+    void test102() throws Exception {
+        when(dataSource.getConnection()).thenThrow(new SQLException("failed")).thenReturn(connection);
+
+        assertThatThrownBy(() -> target.getConnection())
+                .isInstanceOf(SQLException.class)
+                .hasMessage("failed");
+
+        assertThat(target.getConnection()).isNotNull();
+    }
+}
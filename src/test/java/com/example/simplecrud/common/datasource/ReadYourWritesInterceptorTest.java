@@ -0,0 +1,67 @@
+package com.example.simplecrud.common.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.Cookie;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesInterceptorTest {
+
+    ReadYourWritesInterceptor target = new ReadYourWritesInterceptor(Duration.ofSeconds(5));
+
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingContext.clear();
+    }
+
+    @Test
+    @DisplayName("[正]更新系のリクエストがリダイレクトで完了した場合は、Cookieを発行する")
+    void test001() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/user/update");
+
+        target.preHandle(request, response, null);
+        target.postHandle(request, response, null, new ModelAndView("redirect:/user/update?complete"));
+
+        assertThat(ReplicaRoutingContext.isPrimaryRequired()).isTrue();
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE))
+                .startsWith(ReadYourWritesInterceptor.COOKIE_NAME + "=1")
+                .contains("Max-Age=5");
+    }
+
+    @Test
+    @DisplayName("[正]更新系のリクエストで画面を再表示した場合(入力チェックのエラーなど)は、Cookieを発行しない")
+    void test002() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/user/update");
+
+        target.preHandle(request, response, null);
+        target.postHandle(request, response, null, new ModelAndView("user/updateForm"));
+
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE)).isNull();
+    }
+
+    @Test
+    @DisplayName("[正]参照系のリクエストはCookieが無ければレプリカ、あればプライマリに接続させる")
+    void test003() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user/list");
+        target.preHandle(request, response, null);
+        assertThat(ReplicaRoutingContext.isPrimaryRequired()).isFalse();
+
+        request.setCookies(new Cookie(ReadYourWritesInterceptor.COOKIE_NAME, "1"));
+        target.preHandle(request, response, null);
+        assertThat(ReplicaRoutingContext.isPrimaryRequired()).isTrue();
+
+        target.afterCompletion(request, response, null, null);
+        assertThat(ReplicaRoutingContext.isPrimaryRequired()).isFalse();
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE)).isNull();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.simplecrud.common.datasource;
+
+import com.example.simplecrud.domain.model.UserExample;
+import com.example.simplecrud.domain.service.UserServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTest {
+
+    ReplicaRoutingDataSource target = new ReplicaRoutingDataSource(new SimpleDriverDataSource(), new SimpleDriverDataSource());
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingContext.clear();
+    }
+
+    @Test
+    @DisplayName("[正]読み取り専用トランザクションはレプリカに接続する")
+    void test001() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(target.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+    }
+
+    @Test
+    @DisplayName("[正]読み取り専用でないトランザクションはプライマリに接続する")
+    void test002() {
+        assertThat(target.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+    }
+
+    @Test
+    @DisplayName("[正]プライマリを指定された場合は読み取り専用でもプライマリに接続する")
+    void test003() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Object inside = ReplicaRoutingContext.onPrimary(target::determineCurrentLookupKey);
+
+        assertThat(inside).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+        assertThat(target.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+    }
+
+    @Test
+    @DisplayName("[正]参照系のサービス(SUPPORTS, readOnly)はトランザクションを開始せずに、レプリカに接続する")
+    void test004() throws Exception {
+        // 参照系のサービスと同じトランザクション属性
+        Method method = UserServiceImpl.class.getMethod("findAllByExample", UserExample.class);
+        TransactionAttribute attribute = new AnnotationTransactionAttributeSource()
+                .getTransactionAttribute(method, UserServiceImpl.class);
+        // トランザクションを開始する場合はコネクションの取得で失敗する。
+        DataSource unavailable = new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLException("connection must not be obtained");
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return getConnection();
+            }
+        };
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(unavailable), attribute);
+
+        Object route = transactionTemplate.execute(status -> {
+            assertThat(status.isNewTransaction()).isFalse();
+            assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+            assertThat(TransactionSynchronizationManager.isCurrentTransactionReadOnly()).isTrue();
+            return target.determineCurrentLookupKey();
+        });
+
+        assertThat(route).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.simplecrud.common.health;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HikariPoolHealthIndicatorTest {
+
+    /**
+     * 指定した状態のプールを持つDataSourceを作成する。
+     */
+    private HikariDataSource createDataSource(String poolName, int active, int idle, int pending) {
+        HikariPoolMXBean pool = mock(HikariPoolMXBean.class);
+        when(pool.getActiveConnections()).thenReturn(active);
+        when(pool.getIdleConnections()).thenReturn(idle);
+        when(pool.getTotalConnections()).thenReturn(active + idle);
+        when(pool.getThreadsAwaitingConnection()).thenReturn(pending);
+
+        HikariDataSource dataSource = mock(HikariDataSource.class);
+        when(dataSource.getPoolName()).thenReturn(poolName);
+        when(dataSource.getMaximumPoolSize()).thenReturn(active + idle);
+        when(dataSource.getHikariPoolMXBean()).thenReturn(pool);
+        return dataSource;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> poolDetails(Health health, String poolName) {
+        return (Map<String, Object>) health.getDetails().get(poolName);
+    }
+
+    @Test
+    @DisplayName("[正]空きコネクションがある場合はUPとし、プールごとの使用数・待ち数を出力する")
+    void test001() {
+        HikariPoolHealthIndicator target = new HikariPoolHealthIndicator(List.of(
+                createDataSource("simplecrud", 3, 2, 0), createDataSource("simplecrud-replica", 5, 0, 0)));
+
+        Health actual = target.health();
+
+        assertThat(actual.getStatus()).isEqualTo(Status.UP);
+        assertThat(actual.getDetails()).containsOnlyKeys("simplecrud", "simplecrud-replica");
+        assertThat(poolDetails(actual, "simplecrud"))
+                .containsEntry("active", 3).containsEntry("idle", 2).containsEntry("max", 5).containsEntry("pending", 0);
+    }
+
+    @Test
+    @DisplayName("[正]空きコネクションが無く、取得を待っているスレッドがある場合はSATURATEDとする")
+    void test002() {
+        HikariPoolHealthIndicator target = new HikariPoolHealthIndicator(List.of(
+                createDataSource("simplecrud", 5, 0, 2), createDataSource("simplecrud-replica", 1, 4, 0)));
+
+        Health actual = target.health();
+
+        assertThat(actual.getStatus()).isEqualTo(HikariPoolHealthIndicator.SATURATED);
+        assertThat(poolDetails(actual, "simplecrud")).containsEntry("pending", 2);
+    }
+
+    @Test
+    @DisplayName("[正]プールが作成される前(初回のコネクション取得前)はUPとする")
+    void test003() {
+        HikariDataSource dataSource = mock(HikariDataSource.class);
+        when(dataSource.getPoolName()).thenReturn("simplecrud");
+        HikariPoolHealthIndicator target = new HikariPoolHealthIndicator(List.of(dataSource));
+
+        Health actual = target.health();
+
+        assertThat(actual.getStatus()).isEqualTo(Status.UP);
+        assertThat(actual.getDetails()).containsEntry("simplecrud", "not started");
+    }
+}
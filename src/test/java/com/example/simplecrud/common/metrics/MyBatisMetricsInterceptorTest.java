@@ -0,0 +1,89 @@
+package com.example.simplecrud.common.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class MyBatisMetricsInterceptorTest {
+
+    private static final String NAMESPACE = "com.example.simplecrud.domain.repository.UserRepository.";
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    Executor executor = mock(Executor.class);
+
+    // MyBatisと同じく、Interceptorのプロキシ(Plugin)を経由して呼び出す
+    Executor target = (Executor) new MyBatisMetricsInterceptor(meterRegistry).plugin(executor);
+
+    Configuration configuration = new Configuration();
+
+    private MappedStatement mappedStatement(String id, SqlCommandType commandType) {
+        return new MappedStatement.Builder(configuration, NAMESPACE + id, parameter -> null, commandType).build();
+    }
+
+    @Test
+    @DisplayName("[正]ステートメントID(パッケージ名を除く)とコマンドをタグとして、処理時間と取得件数を計測する")
+    void test001() throws Exception {
+        MappedStatement statement = mappedStatement("selectByExample", SqlCommandType.SELECT);
+        doReturn(List.of("1", "2", "3")).when(executor).query(any(), any(), any(), any());
+
+        target.query(statement, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+
+        assertThat(meterRegistry.find("mybatis.statement")
+                .tags("statement", "UserRepository.selectByExample", "command", "SELECT", "exception", "none")
+                .timer().count()).isEqualTo(1);
+        DistributionSummary rows = meterRegistry.find("mybatis.statement.rows")
+                .tags("statement", "UserRepository.selectByExample", "command", "SELECT").summary();
+        assertThat(rows.count()).isEqualTo(1);
+        assertThat(rows.totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("[正]更新系は更新件数を計測し、BATCHの件数なし(負の値)は計測しない")
+    void test002() throws Exception {
+        MappedStatement statement = mappedStatement("insert", SqlCommandType.INSERT);
+        doReturn(1).doReturn(Executor.BATCH_UPDATE_RETURN_VALUE).when(executor).update(any(), any());
+
+        target.update(statement, null);
+        target.update(statement, null);
+
+        assertThat(meterRegistry.find("mybatis.statement")
+                .tags("statement", "UserRepository.insert", "command", "INSERT", "exception", "none")
+                .timer().count()).isEqualTo(2);
+        DistributionSummary rows = meterRegistry.find("mybatis.statement.rows")
+                .tags("statement", "UserRepository.insert", "command", "INSERT").summary();
+        assertThat(rows.count()).isEqualTo(1);
+        assertThat(rows.totalAmount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("[異]例外が発生した場合は、例外のクラス名をタグとして処理時間を計測し、例外はそのまま投げる")
+    void test101() throws Exception {
+        MappedStatement statement = mappedStatement("updateByPrimaryKey", SqlCommandType.UPDATE);
+        doThrow(new SQLException("timeout")).when(executor).update(any(), any());
+
+        assertThatThrownBy(() -> target.update(statement, null))
+                .isInstanceOf(SQLException.class);
+
+        assertThat(meterRegistry.find("mybatis.statement")
+                .tags("statement", "UserRepository.updateByPrimaryKey", "command", "UPDATE", "exception", "SQLException")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("mybatis.statement.rows").summary()).isNull();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.simplecrud.common.metrics;
+
+import com.example.simplecrud.domain.service.UserService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.terasoluna.gfw.common.exception.ResourceNotFoundException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ServiceMetricsAspectTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    UserService userService = mock(UserService.class);
+
+    UserService target;
+
+    {
+        AspectJProxyFactory factory = new AspectJProxyFactory(userService);
+        factory.addAspect(new ServiceMetricsAspect(meterRegistry));
+        target = factory.getProxy();
+    }
+
+    @Test
+    @DisplayName("[正]メソッド名をタグとして処理時間を計測する(例外なしはexception=none)")
+    void test001() {
+        target.findChangedAtByPrimaryKey("1");
+        target.findChangedAtByPrimaryKey("2");
+
+        Timer timer = meterRegistry.find("user.service")
+                .tags("method", "findChangedAtByPrimaryKey", "exception", "none").timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(2);
+        assertThat(meterRegistry.find("user.service.errors").counter()).isNull();
+    }
+
+    @Test
+    @DisplayName("[異]例外が発生した場合は例外のクラス名をタグとして処理時間と件数を計測し、例外はそのまま投げる")
+    void test101() {
+        when(userService.findOneByPrimaryKey("1")).thenThrow(new ResourceNotFoundException("User not found."));
+
+        assertThatThrownBy(() -> target.findOneByPrimaryKey("1"))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        assertThat(meterRegistry.find("user.service")
+                .tags("method", "findOneByPrimaryKey", "exception", "ResourceNotFoundException").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.find("user.service.errors")
+                .tags("method", "findOneByPrimaryKey", "exception", "ResourceNotFoundException").counter().count())
+                .isEqualTo(1);
+    }
+}
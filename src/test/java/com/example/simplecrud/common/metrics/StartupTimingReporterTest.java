@@ -0,0 +1,53 @@
+package com.example.simplecrud.common.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.core.metrics.ApplicationStartup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class StartupTimingReporterTest {
+
+    @Test
+    @DisplayName("[正]記録された起動処理のステップを、名前とタグを含めて出力する")
+    void test001() {
+        BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(16);
+        applicationStartup.start("spring.beans.instantiate").tag("beanName", "sqlSessionFactory").end();
+        StartupTimingReporter target = new StartupTimingReporter(applicationStartup, new SimpleMeterRegistry(), 10, false);
+
+        String actual = target.report(Duration.ofMillis(1234));
+
+        assertThat(actual).startsWith("Application ready in 1234 ms")
+                .contains("spring.beans.instantiate beanName=sqlSessionFactory");
+    }
+
+    @Test
+    @DisplayName("[正]ステップが記録されない場合は起動時間のみを出力する")
+    void test002() {
+        StartupTimingReporter target = new StartupTimingReporter(ApplicationStartup.DEFAULT, new SimpleMeterRegistry(), 10, false);
+
+        String actual = target.report(Duration.ofMillis(1234));
+
+        assertThat(actual).isEqualTo("Application ready in 1234 ms (JVM uptime)");
+    }
+
+    @Test
+    @DisplayName("[正]起動完了時に記録した起動時間は、GCの後もメトリクスから取得できる")
+    void test003() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StartupTimingReporter target = new StartupTimingReporter(ApplicationStartup.DEFAULT, meterRegistry, 10, false);
+
+        target.onApplicationEvent(mock(ApplicationReadyEvent.class));
+        System.gc();
+
+        assertThat(meterRegistry.get("application.ready.time").timeGauge().value(TimeUnit.MILLISECONDS))
+                .isNotNaN().isPositive();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.simplecrud.common.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountingBloomFilterTest {
+
+    @Test
+    @DisplayName("[正]登録した値は必ずtrueと判定される")
+    void test001() {
+        CountingBloomFilter target = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            target.put("user" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(target.mightContain("user" + i)).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("[正]未登録の値の誤判定率がおおむね指定した値に収まる")
+    void test002() {
+        CountingBloomFilter target = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            target.put("user" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (target.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    @Test
+    @DisplayName("[正]削除した値はfalseと判定され、他の値には影響しない")
+    void test003() {
+        CountingBloomFilter target = new CountingBloomFilter(100, 0.01);
+        target.put("user1");
+        target.put("user2");
+
+        target.remove("user1");
+
+        assertThat(target.mightContain("user1")).isFalse();
+        assertThat(target.mightContain("user2")).isTrue();
+    }
+
+    @Test
+    @DisplayName("[異]誤判定率が範囲外の場合、IllegalArgumentExceptionを投げる")
+    void test101() {
+        assertThatThrownBy(() -> new CountingBloomFilter(100, 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.simplecrud.config;
+
+import com.example.simplecrud.common.datasource.ConnectionLimitDataSource;
+import com.example.simplecrud.common.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataSourceConfigTest {
+
+    DataSourceConfig target = new DataSourceConfig();
+
+    HikariDataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    private HikariDataSource createPrimaryDataSource() {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl("jdbc:postgresql://localhost:5432/simplecrud");
+        return target.primaryDataSource(properties);
+    }
+
+    @Test
+    @DisplayName("[正]プールサイズを指定しない場合は、CPUコア数×2+1とする(コネクションは取得しない)")
+    void test001() {
+        dataSource = createPrimaryDataSource();
+
+        assertThat(dataSource.getMaximumPoolSize()).isEqualTo(Runtime.getRuntime().availableProcessors() * 2 + 1);
+        assertThat(dataSource.getHikariPoolMXBean()).isNull();
+    }
+
+    @Test
+    @DisplayName("[正]spring.datasource.hikari.maximum-pool-sizeを指定した場合は、指定した値とする")
+    void test002() {
+        dataSource = createPrimaryDataSource();
+
+        // @ConfigurationPropertiesと同じく、Beanの作成後にプロパティをバインドする。
+        new Binder(new MapConfigurationPropertySource(Map.of("spring.datasource.hikari.maximum-pool-size", "3")))
+                .bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+
+        assertThat(dataSource.getMaximumPoolSize()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("[正]アプリケーションのDataSourceは作成時にコネクションを取得しない(DBが起動していなくても起動できる)")
+    void test003() {
+        dataSource = createPrimaryDataSource();
+
+        DataSource result = target.dataSource(dataSource, new StaticListableBeanFactory().getBeanProvider(HikariDataSource.class),
+                false, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+
+        assertThat(result).isInstanceOf(LazyConnectionDataSourceProxy.class);
+        // プールが開始されていない(コネクションを取得していない)
+        assertThat(dataSource.getHikariPoolMXBean()).isNull();
+    }
+
+    @Test
+    @DisplayName("[正]コネクション数の制限を有効にした場合は、プールごとにプールのサイズで制限する(レプリカが無い場合はプライマリと共有)")
+    void test004() {
+        dataSource = createPrimaryDataSource();
+
+        LazyConnectionDataSourceProxy result = (LazyConnectionDataSourceProxy) target.dataSource(dataSource,
+                new StaticListableBeanFactory().getBeanProvider(HikariDataSource.class),
+                true, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+
+        Map<Object, DataSource> targets = ((ReplicaRoutingDataSource) result.getTargetDataSource()).getResolvedDataSources();
+        assertThat(targets.values()).hasSize(2).allSatisfy(resolved -> assertThat(resolved)
+                .isInstanceOf(ConnectionLimitDataSource.class)
+                .isSameAs(targets.values().iterator().next()));
+        assertThat(dataSource.getHikariPoolMXBean()).isNull();
+    }
+}
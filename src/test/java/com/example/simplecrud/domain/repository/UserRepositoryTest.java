@@ -1,17 +1,31 @@
 package com.example.simplecrud.domain.repository;
+import javax.sql.DataSource;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.example.simplecrud.domain.model.User;
+import com.example.simplecrud.domain.model.UserChangeSummary;
 import com.example.simplecrud.domain.model.UserExample;
+import com.example.simplecrud.domain.model.UserSort;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.junit.jupiter.api.*;
 import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
 
 import static org.apache.commons.lang3.StringUtils.rightPad;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 /**
  * このテストはローカルDBが必要です。
@@ -164,6 +178,385 @@ class UserRepositoryTest {
         }
     }
 
+    @Nested
+    class insertReturning {
+        @Test
+        @DisplayName("[正]データを挿入し、挿入後のデータを取得できる")
+        void test001() {
+            // 準備
+            User expected = createEntity("1");
+
+            // 実行
+            User actual = target.insertReturning(expected);
+
+            // 検証
+            assertThat(actual).isEqualTo(expected);
+            assertThat(target.selectByPrimaryKey(expected.getUid())).isEqualTo(expected);
+        }
+
+        @Test
+        @DisplayName("[正]主キーが重複している場合はnullが返り、データは変更されない")
+        void test002() {
+            // 準備
+            User expected = createEntity("1");
+            insertIntoTable(expected);
+            User duplicated = createEntity("1");
+            duplicated.setName("changed");
+
+            // 実行
+            User actual = target.insertReturning(duplicated);
+
+            // 検証
+            assertThat(actual).isNull();
+            assertThat(target.selectByPrimaryKey(expected.getUid())).isEqualTo(expected);
+        }
+    }
+
+    @Nested
+    class updateByPrimaryKeyReturning {
+        @Test
+        @DisplayName("[正]主キーでデータを更新し、更新後のデータを取得できる(ステータスは更新しない)")
+        void test001() {
+            // 準備
+            User expected = createEntity("1");
+            insertIntoTable(expected);
+            User changed = createEntity("1");
+            changed.setName("changed");
+            changed.setStatus(true);
+
+            // 実行
+            User actual = target.updateByPrimaryKeyReturning(changed);
+
+            // 検証
+            expected.setName("changed");
+            assertThat(actual).isEqualTo(expected);
+        }
+
+        @Test
+        @DisplayName("[正]該当データが無い場合はnullが返る")
+        void test002() {
+            // 実行
+            User actual = target.updateByPrimaryKeyReturning(createEntity("1"));
+
+            // 検証
+            assertThat(actual).isNull();
+        }
+    }
+
+    @Nested
+    class updateByPrimaryKeyAndVersionReturning {
+        @Test
+        @DisplayName("[正]バージョンが一致する場合は更新し、更新後のデータを取得できる")
+        void test001() {
+            // 準備
+            User expected = createEntity("1");
+            insertIntoTable(expected);
+            User changed = createEntity("1");
+            changed.setName("changed");
+            changed.setChangedAt(LocalDateTime.of(2021, 5, 1, 0, 0, 0));
+
+            // 実行
+            User actual = target.updateByPrimaryKeyAndVersionReturning(changed, expected.getChangedAt());
+
+            // 検証
+            expected.setName("changed");
+            expected.setChangedAt(changed.getChangedAt());
+            assertThat(actual).isEqualTo(expected);
+        }
+
+        @Test
+        @DisplayName("[正]バージョンが一致しない場合は更新せず、nullが返る")
+        void test002() {
+            // 準備
+            User expected = createEntity("1");
+            insertIntoTable(expected);
+            User changed = createEntity("1");
+            changed.setName("changed");
+
+            // 実行
+            User actual = target.updateByPrimaryKeyAndVersionReturning(changed, expected.getChangedAt().minusSeconds(1));
+
+            // 検証
+            assertThat(actual).isNull();
+            assertThat(target.selectByPrimaryKey(expected.getUid())).isEqualTo(expected);
+        }
+    }
+
+    @Nested
+    class selectByPrimaryKeyForUpdate {
+        @Test
+        @DisplayName("[正]主キーでデータを取得できる(該当データが無い場合はnull)")
+        void test001() {
+            // 準備
+            User expected = createEntity("1");
+            insertIntoTable(expected);
+
+            // 実行・検証
+            assertThat(target.selectByPrimaryKeyForUpdate(expected.getUid())).isEqualTo(expected);
+            assertThat(target.selectByPrimaryKeyForUpdate("not exist")).isNull();
+        }
+    }
+
+    @Nested
+    class selectBatchForUpdateSkipLocked {
+        @Test
+        @DisplayName("[正]検索条件とステータスに一致するユーザIDを、uidの昇順で件数を制限して取得できる")
+        void test001() {
+            // 準備
+            for (String id : new String[]{"1", "2", "3", "4"}) {
+                User user = createEntity(id);
+                user.setStatus(!"2".equals(id));
+                insertIntoTable(user);
+            }
+            UserExample example = new UserExample();
+            example.createCriteria().andUidNotEqualTo(createEntity("3").getUid());
+
+            // 実行
+            List<String> actual = target.selectBatchForUpdateSkipLocked(example, true, 10);
+
+            // 検証
+            assertThat(actual).containsExactly(createEntity("1").getUid(), createEntity("4").getUid());
+            assertThat(target.selectBatchForUpdateSkipLocked(example, true, 1)).containsExactly(createEntity("1").getUid());
+        }
+    }
+
+    @Nested
+    class updateStatusByPrimaryKeys {
+        @Test
+        @DisplayName("[正]指定したユーザIDのステータスと最終更新日時を更新できる")
+        void test001() {
+            // 準備
+            insertIntoTable(createEntity("1"), createEntity("2"), createEntity("3"));
+            LocalDateTime changedAt = LocalDateTime.of(2021, 5, 1, 0, 0, 0);
+
+            // 実行
+            int actual = target.updateStatusByPrimaryKeys(
+                    List.of(createEntity("1").getUid(), createEntity("3").getUid()), true, changedAt);
+
+            // 検証
+            assertThat(actual).isEqualTo(2);
+            assertThat(target.selectByPrimaryKey(createEntity("1").getUid()).getStatus()).isTrue();
+            assertThat(target.selectByPrimaryKey(createEntity("1").getUid()).getChangedAt()).isEqualTo(changedAt);
+            assertThat(target.selectByPrimaryKey(createEntity("2").getUid()).getStatus()).isFalse();
+        }
+    }
+
+    @Nested
+    class updateStatusByPrimaryKeyReturning {
+        @Test
+        @DisplayName("[正]ステータスと最終更新日時を更新し、DBに保存された値を取得できる(最終更新日時はマイクロ秒に丸められる)")
+        void test001() {
+            // 準備
+            insertIntoTable(createEntity("1"));
+            LocalDateTime changedAt = LocalDateTime.of(2021, 5, 1, 0, 0, 0, 123456789);
+
+            // 実行
+            User actual = target.updateStatusByPrimaryKeyReturning(createEntity("1").getUid(), true, changedAt);
+
+            // 検証
+            assertThat(actual.getStatus()).isTrue();
+            assertThat(actual.getChangedAt()).isEqualTo(LocalDateTime.of(2021, 5, 1, 0, 0, 0, 123457000));
+            assertThat(actual).isEqualTo(target.selectByPrimaryKey(createEntity("1").getUid()));
+        }
+
+        @Test
+        @DisplayName("[正]該当データが無い場合はnullが返る")
+        void test002() {
+            // 実行
+            User actual = target.updateStatusByPrimaryKeyReturning(createEntity("1").getUid(), true, LocalDateTime.now());
+
+            // 検証
+            assertThat(actual).isNull();
+        }
+    }
+
+    @Nested
+    class existsByPrimaryKey {
+        @Test
+        @DisplayName("[正]主キーのデータが存在するかを判定できる")
+        void test001() {
+            // 準備
+            User expected = createEntity("1");
+            insertIntoTable(expected);
+
+            // 実行・検証
+            assertThat(target.existsByPrimaryKey(expected.getUid())).isTrue();
+            assertThat(target.existsByPrimaryKey(createEntity("2").getUid())).isFalse();
+        }
+    }
+
+    @Nested
+    class selectPageByExample {
+        @Test
+        @DisplayName("[正]一覧表示用の列のみを取得する(パスワードとコメントは取得しない)")
+        void test001() {
+            // 準備
+            User expected = createEntity("1");
+            insertIntoTable(expected);
+
+            // 実行
+            List<User> actual = target.selectPageByExample(new UserExample(), null, null, 10);
+
+            // 検証
+            assertThat(actual).hasSize(1);
+            assertThat(actual.get(0).getUid()).isEqualTo(expected.getUid());
+            assertThat(actual.get(0).getName()).isEqualTo(expected.getName());
+            assertThat(actual.get(0).getPass()).isNull();
+            assertThat(actual.get(0).getComment()).isNull();
+        }
+    }
+
+    @Nested
+    class selectCountPlanByExample {
+        @Test
+        @DisplayName("[正]検索条件の実行計画を取得でき、1行目に推定件数が含まれる")
+        void test001() {
+            // 準備
+            UserExample example = new UserExample();
+            example.createCriteria().andStatusEqualTo(true);
+
+            // 実行
+            List<String> actual = target.selectCountPlanByExample(example);
+
+            // 検証
+            assertThat(actual).isNotEmpty();
+            assertThat(actual.get(0)).containsPattern("rows=\\d+");
+        }
+    }
+
+    @Nested
+    class countByExampleWithLimit {
+        @Test
+        @DisplayName("[正]検索条件に一致する件数を、上限までで数える")
+        void test001() {
+            // 準備
+            insertIntoTable(createEntity("1"), createEntity("2"), createEntity("3"));
+            UserExample example = new UserExample();
+            example.createCriteria().andStatusEqualTo(false);
+
+            // 実行・検証
+            assertThat(target.countByExampleWithLimit(example, 10)).isEqualTo(3);
+            assertThat(target.countByExampleWithLimit(example, 2)).isEqualTo(2);
+        }
+    }
+
+    /**
+     * 一覧画面の検索条件がインデックスで検索されることを実行計画で確認する。
+     * db/schema.sqlのインデックスを作成済みであること。
+     * テストデータが少ないとシーケンシャルスキャンが選ばれるため、enable_seqscanを無効にして確認する。
+     */
+    @Nested
+    class searchPlan {
+
+        @Autowired
+        SqlSessionFactory sqlSessionFactory;
+
+        @Autowired
+        DataSource dataSource;
+
+        /**
+         * countByExampleの実行計画を取得する。
+         */
+        private String explainCountByExample(UserExample example) {
+            return explain("countByExample", example);
+        }
+
+        /**
+         * ステートメントの実行計画を取得する。
+         */
+        private String explain(String statementId, Object parameter) {
+            Configuration configuration = sqlSessionFactory.getConfiguration();
+            BoundSql boundSql = configuration.getMappedStatement(UserRepository.class.getName() + "." + statementId).getBoundSql(parameter);
+            MetaObject metaObject = configuration.newMetaObject(parameter);
+            Object[] args = boundSql.getParameterMappings().stream()
+                    .map(ParameterMapping::getProperty)
+                    .map(property -> boundSql.hasAdditionalParameter(property)
+                            ? boundSql.getAdditionalParameter(property) : metaObject.getValue(property))
+                    .toArray();
+
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("set local enable_seqscan = off");
+            return String.join("\n", jdbcTemplate.queryForList("explain " + boundSql.getSql(), String.class, args));
+        }
+
+        @Test
+        @DisplayName("[正]ユーザIDの前方一致はuser_uid_pattern_idxで検索される")
+        void test001() {
+            UserExample example = new UserExample();
+            example.createCriteria().andUidLike("abc%");
+
+            assertThat(explainCountByExample(example)).contains("user_uid_pattern_idx").doesNotContain("Seq Scan");
+        }
+
+        @Test
+        @DisplayName("[正]氏名の部分一致はuser_name_trgm_idxで検索される")
+        void test002() {
+            UserExample example = new UserExample();
+            example.createCriteria().andNameLike("%name1%");
+
+            assertThat(explainCountByExample(example)).contains("user_name_trgm_idx").doesNotContain("Seq Scan");
+        }
+
+        @Test
+        @DisplayName("[正]メールの前方一致はuser_mail_pattern_idxで検索される")
+        void test003() {
+            UserExample example = new UserExample();
+            example.createCriteria().andMailLike("mail1%");
+
+            assertThat(explainCountByExample(example)).contains("user_mail_pattern_idx").doesNotContain("Seq Scan");
+        }
+
+        @Test
+        @DisplayName("[正]作成日時・最終更新日時の範囲はそれぞれのインデックスで検索される")
+        void test004() {
+            UserExample created = new UserExample();
+            created.createCriteria()
+                    .andCreatedAtGreaterThanOrEqualTo(LocalDateTime.of(2021, 4, 1, 0, 0))
+                    .andCreatedAtLessThan(LocalDateTime.of(2021, 4, 2, 0, 0));
+            UserExample changed = new UserExample();
+            changed.createCriteria()
+                    .andChangedAtGreaterThanOrEqualTo(LocalDateTime.of(2021, 4, 1, 0, 0))
+                    .andChangedAtLessThan(LocalDateTime.of(2021, 4, 2, 0, 0));
+
+            assertThat(explainCountByExample(created)).contains("user_created_at_uid_idx").doesNotContain("Seq Scan");
+            assertThat(explainCountByExample(changed)).contains("user_changed_at_uid_idx").doesNotContain("Seq Scan");
+        }
+
+        @Test
+        @DisplayName("[正]一覧の並び順(UserSort)はインデックスの順に読み込まれ、テーブル全体の並び替えを行わない")
+        void test005() {
+            for (UserSort sort : UserSort.values()) {
+                UserExample example = new UserExample();
+                example.setSort(sort);
+                Map<String, Object> parameter = new HashMap<>();
+                parameter.put("example", example);
+                parameter.put("offset", 0);
+                parameter.put("limit", 21);
+
+                assertThat(explain("selectByExampleWithLimit", parameter)).as(sort.name())
+                        .contains("Index").doesNotContain("Sort");
+            }
+        }
+    }
+
+    @Nested
+    class selectChangeSummary {
+        @Test
+        @DisplayName("[正]全データの件数と最終更新日時を取得できる(データが無い場合、最終更新日時はnull)")
+        void test001() {
+            assertThat(target.selectChangeSummary().getCount()).isZero();
+            assertThat(target.selectChangeSummary().getLastChangedAt()).isNull();
+
+            User latest = createEntity("2");
+            latest.setChangedAt(LocalDateTime.of(2021, 5, 1, 0, 0, 0));
+            insertIntoTable(createEntity("1"), latest);
+
+            UserChangeSummary actual = target.selectChangeSummary();
+            assertThat(actual.getCount()).isEqualTo(2);
+            assertThat(actual.getLastChangedAt()).isEqualTo(latest.getChangedAt());
+        }
+    }
+
     // 以下のメソッドのテスト実装を省略(MyBatisGeneratorをある程度信用しよう)
 
     @Nested
@@ -172,6 +565,28 @@ class UserRepositoryTest {
 
     @Nested
     class selectByExample {
+        @Test
+        @DisplayName("[正]sortを指定するとその並び順で取得する(orderByClauseより優先する)")
+        void test001() {
+            // 準備
+            User user1 = createEntity("1");
+            user1.setName("b");
+            User user2 = createEntity("2");
+            user2.setName("a");
+            User user3 = createEntity("3");
+            user3.setName("b");
+            insertIntoTable(user1, user2, user3);
+            UserExample example = new UserExample();
+            example.setOrderByClause("uid");
+            example.setSort(UserSort.NAME_DESC);
+
+            // 実行
+            List<User> actual = target.selectByExample(example);
+
+            // 検証(同じ氏名はuidの降順)
+            assertThat(actual).extracting(User::getUid)
+                    .containsExactly(user3.getUid(), user1.getUid(), user2.getUid());
+        }
     }
 
     @Nested
@@ -184,6 +599,43 @@ class UserRepositoryTest {
 
     @Nested
     class selectByExampleWithRowbounds {
+        @Test
+        @DisplayName("[正]RowBoundsの範囲のデータを全項目で取得する")
+        void test001() {
+            // 準備
+            insertIntoTable(createEntity("1"), createEntity("2"), createEntity("3"));
+            UserExample example = new UserExample();
+            example.setOrderByClause("uid desc");
+
+            // 実行
+            List<User> actual = target.selectByExampleWithRowbounds(example, new RowBounds(1, 1));
+
+            // 検証
+            User expected = createEntity("2");
+            assertThat(actual).extracting(User::getUid, User::getPass, User::getComment)
+                    .containsExactly(tuple(expected.getUid(), expected.getPass(), expected.getComment()));
+        }
+    }
+
+    @Nested
+    class selectByExampleWithLimit {
+        @Test
+        @DisplayName("[正]読み飛ばし・件数の上限の範囲のデータを、一覧表示用の項目のみ取得する")
+        void test001() {
+            // 準備
+            insertIntoTable(createEntity("1"), createEntity("2"), createEntity("3"));
+            UserExample example = new UserExample();
+            example.setOrderByClause("uid desc");
+
+            // 実行
+            List<User> actual = target.selectByExampleWithLimit(example, 1, 1);
+            List<User> rest = target.selectByExampleWithLimit(example, 1, null);
+
+            // 検証
+            assertThat(actual).extracting(User::getUid, User::getPass, User::getComment)
+                    .containsExactly(tuple(createEntity("2").getUid(), null, null));
+            assertThat(rest).extracting(User::getUid).containsExactly(createEntity("2").getUid(), createEntity("1").getUid());
+        }
     }
 
     @Nested
@@ -1,22 +1,33 @@
 package com.example.simplecrud.domain.service;
 
 import com.example.simplecrud.common.exception.DuplicateKeyBusinessException;
+import com.example.simplecrud.common.exception.OptimisticLockingFailureBusinessException;
 import com.example.simplecrud.domain.model.User;
+import com.example.simplecrud.domain.model.UserChangeSummary;
 import com.example.simplecrud.domain.model.UserExample;
+import com.example.simplecrud.domain.model.UserSort;
 import com.example.simplecrud.domain.repository.UserRepository;
 import org.junit.jupiter.api.*;
+import org.mockito.AdditionalAnswers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.AopTestUtils;
 import org.springframework.transaction.annotation.Transactional;
 import org.terasoluna.gfw.common.exception.ResourceNotFoundException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.apache.commons.lang3.StringUtils.rightPad;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 
 /**
  * このテストはサービスとリポジトリーの結合テストです。(サービス単体のモックテストは行いません。)
@@ -33,6 +44,9 @@ class UserServiceImplTest {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    UserCounter userCounter;
+
     /**
      * テーブルにデータを挿入する。
      *
@@ -120,6 +134,40 @@ class UserServiceImplTest {
         }
     }
 
+    @Nested
+    class reloadByPrimaryKey {
+        @Test
+        @DisplayName("[正]主キーでDBの最新のデータを取得できる")
+        void test001() {
+            // 準備
+            User expected = createEntity("1");
+            insertIntoTable(expected);
+            target.findOneByPrimaryKey(expected.getUid());
+            expected.setName("changed");
+            userRepository.updateByPrimaryKey(expected);
+
+            // 実行
+            User actual = target.reloadByPrimaryKey(expected.getUid());
+
+            // 検証
+            assertThat(actual).isEqualTo(expected);
+        }
+
+        @Test
+        @DisplayName("[異]指定したIDのデータが見つからない場合、ResourceNotFound例外を投げる")
+        void test101() {
+            assertThatThrownBy(() -> target.reloadByPrimaryKey("not exist"))
+                    .isInstanceOf(ResourceNotFoundException.class);
+        }
+
+        @Test
+        @DisplayName("[異]引数にNullを渡すと、IllegalArgumentExceptionを投げる")
+        void test102() {
+            assertThatThrownBy(() -> target.reloadByPrimaryKey(null))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
     @Nested
     class create {
         @Test
@@ -220,6 +268,141 @@ class UserServiceImplTest {
     }
 
 
+    @Nested
+    class createAll {
+
+        /**
+         * 一括登録用のテストエンティティの作成(画面の入力チェックの最大桁数のダミーデータをセット)
+         */
+        private User createImportEntity(String id) {
+            User user = createEntity(id);
+            user.setUid(rightPad(id, 20, "0"));
+            user.setMail(rightPad("mail" + id, 64, "0") + "@example.com");
+            return user;
+        }
+
+        /**
+         * 入力行の作成(行番号はヘッダ行の次から順に付与する)
+         */
+        private List<UserImportRow> toRows(User... users) {
+            List<UserImportRow> rows = new ArrayList<>();
+            for (int i = 0; i < users.length; i++) {
+                rows.add(UserImportRow.valid(i + 2, users[i]));
+            }
+            return rows;
+        }
+
+        @Test
+        @DisplayName("[正]複数のデータを一括登録できる")
+        void test001() {
+            // 準備
+            List<UserImportRow> rows = toRows(createImportEntity("1"), createImportEntity("2"), createImportEntity("3"));
+
+            // 実行
+            UserImportResult actual = target.createAll(rows);
+
+            // 検証
+            assertThat(actual.getCreatedCount()).isEqualTo(3);
+            assertThat(actual.getErrorCount()).isZero();
+            assertThat(actual.getErrors()).isEmpty();
+            assertThat(userRepository.countByExample(new UserExample())).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("[正]登録済み・入力内で重複の行はエラーとして行番号とともに記録され、他の行は登録される")
+        void test002() {
+            // 準備
+            insertIntoTable(createImportEntity("1"));
+            List<UserImportRow> rows = toRows(createImportEntity("1"), createImportEntity("2"), createImportEntity("2"));
+
+            // 実行
+            UserImportResult actual = target.createAll(rows);
+
+            // 検証
+            assertThat(actual.getCreatedCount()).isEqualTo(1);
+            assertThat(actual.getErrors()).extracting(UserImportResult.RowError::getLineNumber,
+                    UserImportResult.RowError::getMessage)
+                    .containsExactlyInAnyOrder(tuple(2, "User already registered."),
+                            tuple(4, "User is duplicated in the input."));
+            assertThat(userRepository.selectByPrimaryKey(createImportEntity("2").getUid())).isNotNull();
+        }
+
+        @Test
+        @DisplayName("[正]入力チェックに違反した行はDBに送らずにエラーとなり、他の行は登録される")
+        void test003() {
+            // 準備
+            List<UserImportRow> rows = new ArrayList<>(toRows(createImportEntity("1")));
+            rows.add(UserImportRow.invalid(5, "invalid", List.of("uid", "mail", "uid")));
+
+            // 実行
+            UserImportResult actual = target.createAll(rows);
+
+            // 検証
+            assertThat(actual.getCreatedCount()).isEqualTo(1);
+            assertThat(actual.getErrors()).extracting(UserImportResult.RowError::getLineNumber,
+                    UserImportResult.RowError::getUid, UserImportResult.RowError::getMessage)
+                    .containsExactly(tuple(5, "invalid", "Invalid item: mail, uid."));
+            assertThat(userRepository.existsByPrimaryKey("invalid")).isFalse();
+        }
+
+        @Test
+        @DisplayName("[正]登録できなかった行は上限件数まで保持し、上限を超えた行は件数のみ数える")
+        void test004() {
+            // 準備
+            List<UserImportRow> rows = new ArrayList<>();
+            for (int i = 0; i < UserImportResult.MAX_ERRORS + 1; i++) {
+                rows.add(UserImportRow.invalid(i + 1, String.valueOf(i), List.of("name")));
+            }
+            rows.add(UserImportRow.valid(UserImportResult.MAX_ERRORS + 2, createImportEntity("x")));
+
+            // 実行
+            UserImportResult actual = target.createAll(rows);
+
+            // 検証
+            assertThat(actual.getCreatedCount()).isEqualTo(1);
+            assertThat(actual.getErrorCount()).isEqualTo(UserImportResult.MAX_ERRORS + 1);
+            assertThat(actual.getErrors()).hasSize(UserImportResult.MAX_ERRORS);
+        }
+
+        @Test
+        @DisplayName("[正]重複チェックの後に同じIDが登録されていた場合は、1件ずつ登録し直して登録済みの行のみエラーとする")
+        void test005() {
+            // 準備(重複チェックの後に他で登録された状態を再現するため、重複チェックは登録済みのIDを返さない)
+            insertIntoTable(createImportEntity("1"));
+            UserServiceImpl service = AopTestUtils.getTargetObject(target);
+            UserRepository original = service.userRepository;
+            UserRepository repository = mock(UserRepository.class, AdditionalAnswers.delegatesTo(original));
+            doReturn(Collections.emptyList()).when(repository).selectUidsByPrimaryKeys(anyList());
+            service.userRepository = repository;
+
+            UserImportResult actual;
+            try {
+                // 実行
+                actual = target.createAll(toRows(createImportEntity("1"), createImportEntity("2")));
+            } finally {
+                service.userRepository = original;
+            }
+
+            // 検証
+            assertThat(actual.getCreatedCount()).isEqualTo(1);
+            assertThat(actual.getErrors()).extracting(UserImportResult.RowError::getLineNumber,
+                    UserImportResult.RowError::getMessage)
+                    .containsExactly(tuple(2, "User already registered."));
+            assertThat(userRepository.selectByPrimaryKey(createImportEntity("2").getUid())).isNotNull();
+        }
+
+        @Test
+        @DisplayName("[異]Nullを渡すと、IllegalArgumentExceptionを投げる")
+        void test101() {
+            assertThatThrownBy(() -> {
+                // 実行
+                target.createAll(null);
+            })
+                    // 検証
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
     @Nested
     class update {
         @Test
@@ -306,6 +489,123 @@ class UserServiceImplTest {
                     // 検証
                     .isInstanceOf(DataIntegrityViolationException.class);
         }
+
+        @Test
+        @DisplayName("[異]取得後に他で更新されている場合、OptimisticLockingFailureBusinessExceptionを投げる")
+        void test106() {
+            User expected = createEntity("1");
+            insertIntoTable(expected);
+            expected.setName("changed");
+            expected.setChangedAt(expected.getChangedAt().minusSeconds(1));
+
+            assertThatThrownBy(() -> {
+                // 実行
+                target.update(expected);
+            })
+                    // 検証
+                    .isInstanceOf(OptimisticLockingFailureBusinessException.class);
+        }
+
+        @Test
+        @DisplayName("[異]最終更新日時(バージョン)をNullで渡すと、IllegalArgumentExceptionを投げ、データは変更されない")
+        void test107() {
+            User expected = createEntity("1");
+            insertIntoTable(expected);
+            expected.setName("changed");
+            expected.setChangedAt(null);
+
+            assertThatThrownBy(() -> {
+                // 実行
+                target.update(expected);
+            })
+                    // 検証
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(userRepository.selectByPrimaryKey(expected.getUid()).getName()).isEqualTo(createEntity("1").getName());
+        }
+    }
+
+    @Nested
+    class deactivate {
+        @Test
+        @DisplayName("[正]ユーザを無効にできる")
+        void test001() {
+            // 準備
+            User expected = createEntity("1");
+            expected.setStatus(true);
+            insertIntoTable(expected);
+
+            // 実行
+            User actual = target.deactivate(expected.getUid());
+
+            // 検証
+            assertThat(actual.getStatus()).isFalse();
+            assertThat(userRepository.selectByPrimaryKey(expected.getUid()).getStatus()).isFalse();
+        }
+
+        @Test
+        @DisplayName("[正]返却される最終更新日時はDBに保存された値で、そのまま次の更新のバージョンに使える")
+        void test002() {
+            // 準備
+            User expected = createEntity("1");
+            expected.setStatus(true);
+            insertIntoTable(expected);
+
+            // 実行
+            User actual = target.deactivate(expected.getUid());
+
+            // 検証
+            assertThat(actual.getChangedAt()).isEqualTo(userRepository.selectByPrimaryKey(expected.getUid()).getChangedAt());
+            actual.setName("changed");
+            assertThat(target.update(actual).getName()).isEqualTo("changed");
+        }
+
+        @Test
+        @DisplayName("[異]存在しないIDを指定するとResourceNotFoundExceptionを投げる")
+        void test101() {
+            assertThatThrownBy(() -> target.deactivate("not exist"))
+                    .isInstanceOf(ResourceNotFoundException.class);
+        }
+
+        @Test
+        @DisplayName("[異]Nullを渡すと、IllegalArgumentExceptionを投げる")
+        void test102() {
+            assertThatThrownBy(() -> target.deactivate(null))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class deactivateBatch {
+        @Test
+        @DisplayName("[正]検索条件に一致する有効なユーザを、指定した件数ずつ無効にできる")
+        void test001() {
+            // 準備
+            for (String id : new String[]{"1", "2", "3"}) {
+                User user = createEntity(id);
+                user.setStatus(true);
+                insertIntoTable(user);
+            }
+            UserExample example = new UserExample();
+            example.createCriteria().andUidNotEqualTo(createEntity("2").getUid());
+
+            // 実行・検証(対象が無くなるまで繰り返す)
+            assertThat(target.deactivateBatch(example, 1)).isEqualTo(1);
+            assertThat(target.deactivateBatch(example, 1)).isEqualTo(1);
+            assertThat(target.deactivateBatch(example, 1)).isZero();
+
+            assertThat(userRepository.selectByPrimaryKey(createEntity("1").getUid()).getStatus()).isFalse();
+            assertThat(userRepository.selectByPrimaryKey(createEntity("2").getUid()).getStatus()).isTrue();
+            assertThat(userRepository.selectByPrimaryKey(createEntity("3").getUid()).getStatus()).isFalse();
+        }
+
+        @Test
+        @DisplayName("[異]Nullを渡す、sizeが0以下の場合は、IllegalArgumentExceptionを投げる")
+        void test101() {
+            assertThatThrownBy(() -> target.deactivateBatch(null, 1))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> target.deactivateBatch(new UserExample(), 0))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
     }
 
     @Nested
@@ -398,4 +698,271 @@ class UserServiceImplTest {
 
     }
 
-}
\ No newline at end of file
+    @Nested
+    class countByExample {
+
+        @Test
+        @DisplayName("[正]条件を指定すると正確な件数を返す")
+        void test001() {
+            // 準備
+            insertIntoTable(createEntity("1"), createEntity("2"));
+            UserExample example = new UserExample();
+            example.createCriteria().andUidEqualTo(createEntity("1").getUid());
+
+            // 実行
+            UserCount actual = target.countByExample(example);
+
+            // 検証
+            assertThat(actual.getValue()).isEqualTo(1);
+            assertThat(actual.isEstimated()).isFalse();
+        }
+
+        @Test
+        @DisplayName("[正]条件を指定しないと推定件数を返し、登録・削除のイベントで増減する")
+        void test002() {
+            // 準備
+            long before = target.countByExample(new UserExample()).getValue();
+
+            // 実行(テストはロールバックするためコミット後のイベントは発行されない。直接通知する)
+            userCounter.onUserChanged(UserChangedEvent.created(List.of("1", "2")));
+            userCounter.onUserChanged(UserChangedEvent.deleted("1"));
+            UserCount actual = target.countByExample(new UserExample());
+
+            // 検証
+            assertThat(actual.getValue()).isEqualTo(before + 1);
+            assertThat(actual.isEstimated()).isTrue();
+        }
+
+        @Test
+        @DisplayName("[異]引数がnullの場合はエラー")
+        void test101() {
+            assertThatThrownBy(() -> target.countByExample(null))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class findPage {
+
+        @Test
+        @DisplayName("[正]先頭ページを取得でき、次ページのカーソルが設定される")
+        void test001() {
+            // 準備
+            User user1 = createEntity("1");
+            User user2 = createEntity("2");
+            User user3 = createEntity("3");
+            insertIntoTable(user3, user1, user2);
+
+            // 実行
+            UserPage actual = target.findPage(new UserExample(), null, null, 2);
+
+            // 検証
+            assertThat(actual.getContent()).extracting(User::getUid)
+                    .containsExactly(user1.getUid(), user2.getUid());
+            assertThat(actual.getPrevUid()).isNull();
+            assertThat(actual.getNextUid()).isEqualTo(user2.getUid());
+        }
+
+        @Test
+        @DisplayName("[正]afterUidを指定すると次のページを取得できる")
+        void test002() {
+            // 準備
+            User user1 = createEntity("1");
+            User user2 = createEntity("2");
+            User user3 = createEntity("3");
+            insertIntoTable(user1, user2, user3);
+
+            // 実行
+            UserPage actual = target.findPage(new UserExample(), user2.getUid(), null, 2);
+
+            // 検証
+            assertThat(actual.getContent()).extracting(User::getUid)
+                    .containsExactly(user3.getUid());
+            assertThat(actual.getPrevUid()).isEqualTo(user3.getUid());
+            assertThat(actual.getNextUid()).isNull();
+        }
+
+        @Test
+        @DisplayName("[正]beforeUidを指定すると前のページを昇順で取得できる")
+        void test003() {
+            // 準備
+            User user1 = createEntity("1");
+            User user2 = createEntity("2");
+            User user3 = createEntity("3");
+            insertIntoTable(user1, user2, user3);
+
+            // 実行
+            UserPage actual = target.findPage(new UserExample(), null, user3.getUid(), 1);
+
+            // 検証
+            assertThat(actual.getContent()).extracting(User::getUid)
+                    .containsExactly(user2.getUid());
+            assertThat(actual.getPrevUid()).isEqualTo(user2.getUid());
+            assertThat(actual.getNextUid()).isEqualTo(user2.getUid());
+        }
+
+        @Test
+        @DisplayName("[異]Nullを渡すと、IllegalArgumentExceptionを投げる")
+        void test101() {
+            assertThatThrownBy(() -> {
+                // 実行
+                target.findPage(null, null, null, 20);
+            })
+                    // 検証
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class findPageByExample {
+
+        @Test
+        @DisplayName("[正]指定した位置から指定した件数を取得する")
+        void test001() {
+            // 準備
+            insertIntoTable(createEntity("1"), createEntity("2"), createEntity("3"), createEntity("4"));
+
+            // 実行
+            List<User> actual = target.findPageByExample(new UserExample(), 1, 2);
+
+            // 検証
+            assertThat(actual).extracting(User::getUid)
+                    .containsExactly(createEntity("2").getUid(), createEntity("3").getUid());
+            assertThat(actual).extracting(User::getPass).containsOnlyNulls();
+            assertThat(actual).extracting(User::getComment).containsOnlyNulls();
+        }
+
+        @Test
+        @DisplayName("[異]offsetが負の値、limitが0以下の場合はエラー")
+        void test101() {
+            assertThatThrownBy(() -> target.findPageByExample(new UserExample(), -1, 10))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> target.findPageByExample(new UserExample(), 0, 0))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class scanByExample {
+
+        @Test
+        @DisplayName("[正]検索条件に一致するデータを1件ずつ処理できる")
+        void test001() {
+            // 準備
+            insertIntoTable(
+                    createEntity("1"),
+                    createEntity("2"),
+                    createEntity("3")
+            );
+            UserExample example = new UserExample();
+            example.createCriteria().andUidNotEqualTo(createEntity("2").getUid());
+            example.setOrderByClause("uid");
+            List<User> actual = new ArrayList<>();
+
+            // 実行
+            target.scanByExample(example, actual::add);
+
+            // 検証
+            assertThat(actual).containsExactly(createEntity("1"), createEntity("3"));
+        }
+
+        @Test
+        @DisplayName("[異]Nullを渡すと、IllegalArgumentExceptionを投げる")
+        void test101() {
+            assertThatThrownBy(() -> {
+                // 実行
+                target.scanByExample(null, user -> {
+                });
+            })
+                    // 検証
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class streamByExample {
+
+        @Test
+        @DisplayName("[正]検索条件に一致するデータを順に取り出せる")
+        void test001() {
+            // 準備
+            insertIntoTable(
+                    createEntity("1"),
+                    createEntity("2"),
+                    createEntity("3")
+            );
+            UserExample example = new UserExample();
+            example.createCriteria().andUidNotEqualTo(createEntity("2").getUid());
+            example.setSort(UserSort.UID_ASC);
+            List<User> actual = new ArrayList<>();
+
+            // 実行
+            target.streamByExample(example, users -> users.forEach(actual::add));
+
+            // 検証
+            assertThat(actual).containsExactly(createEntity("1"), createEntity("3"));
+        }
+
+        @Test
+        @DisplayName("[異]Nullを渡すと、IllegalArgumentExceptionを投げる")
+        void test101() {
+            assertThatThrownBy(() -> target.streamByExample(new UserExample(), null))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class findChangedAtByPrimaryKey {
+
+        @Test
+        @DisplayName("[正]主キーで最終更新日時を取得できる。存在しない場合はnull")
+        void test001() {
+            // 準備
+            User expected = createEntity("1");
+            insertIntoTable(expected);
+
+            // 実行・検証
+            assertThat(target.findChangedAtByPrimaryKey(expected.getUid())).isEqualTo(expected.getChangedAt());
+            assertThat(target.findChangedAtByPrimaryKey("not exist")).isNull();
+        }
+
+        @Test
+        @DisplayName("[異]Nullを渡すと、IllegalArgumentExceptionを投げる")
+        void test101() {
+            assertThatThrownBy(() -> target.findChangedAtByPrimaryKey(null))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class summarize {
+
+        @Test
+        @DisplayName("[正]全体の件数と最終更新日時を取得できる(削除はイベントによらず件数に反映される)")
+        void test001() {
+            // 準備
+            User latest = createEntity("2");
+            latest.setChangedAt(LocalDateTime.of(2021, 5, 1, 0, 0, 0));
+            insertIntoTable(createEntity("1"), latest, createEntity("3"));
+            userRepository.deleteByPrimaryKey(createEntity("1").getUid());
+
+            // 実行
+            UserChangeSummary actual = target.summarize();
+
+            // 検証
+            assertThat(actual.getCount()).isEqualTo(2);
+            assertThat(actual.getLastChangedAt()).isEqualTo(latest.getChangedAt());
+        }
+
+        @Test
+        @DisplayName("[正]0件の場合、最終更新日時はnull")
+        void test002() {
+            // 実行
+            UserChangeSummary actual = target.summarize();
+
+            // 検証
+            assertThat(actual.getLastChangedAt()).isNull();
+        }
+    }
+
+}